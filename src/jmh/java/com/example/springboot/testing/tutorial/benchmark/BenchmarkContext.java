@@ -0,0 +1,89 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.SpringbootTestingTutorialApplication;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//boots the application against an embedded H2 in MySQL mode, or against -Dbenchmark.datasource.url when given.
+//That url has to name a database (schema) of its own: it is migrated and seeded, and only dropped and migrated again
+//on every start with -Dbenchmark.flyway.clean=true
+final class BenchmarkContext {
+
+    private static final String EMBEDDED_URL = "jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    static final String DATASOURCE_URL = System.getProperty("benchmark.datasource.url", EMBEDDED_URL);
+
+    //flyway.clean() drops every object in the url's schema, so outside the embedded database it is opt-in
+    private static final boolean CLEAN = DATASOURCE_URL.startsWith("jdbc:h2:mem:")
+            || Boolean.getBoolean("benchmark.flyway.clean");
+
+    private static final int SEED_CHUNK_SIZE = 500;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=" + DATASOURCE_URL,
+                "--spring.datasource.username=" + System.getProperty("benchmark.datasource.username", "sa"),
+                "--spring.datasource.password=" + System.getProperty("benchmark.datasource.password", ""),
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        args.addAll(Arrays.asList(extraArgs));
+
+        //command line arguments win over application.properties; a run only starts from an empty employees table,
+        //so seeded rows never collide with rows left by the previous one
+        return new SpringApplicationBuilder(SpringbootTestingTutorialApplication.class)
+                .initializers(context -> context.getBeanFactory().registerSingleton("benchmarkMigrationStrategy",
+                        (FlywayMigrationStrategy) flyway -> {
+                            if (CLEAN) {
+                                flyway.clean();
+                            }
+                            flyway.migrate();
+                            requireEmpty(new JdbcTemplate(flyway.getConfiguration().getDataSource()));
+                        }))
+                .run(args.toArray(new String[0]));
+    }
+
+    private static void requireEmpty(JdbcTemplate jdbcTemplate) {
+
+        Long rows = jdbcTemplate.queryForObject("select count(*) from employees", Long.class);
+        if (rows != null && rows > 0) {
+            throw new IllegalStateException(DATASOURCE_URL + " already holds " + rows + " employees; point "
+                    + "-Dbenchmark.datasource.url at an empty benchmark schema, or pass -Dbenchmark.flyway.clean=true "
+                    + "to drop everything in it first");
+        }
+    }
+
+    //inserts employees with unique names and emails so every lookup matches exactly one row
+    static List<Employee> seed(EmployeeRepo employeeRepo, int count) {
+
+        List<Employee> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            employees.add(employee(i));
+        }
+
+        for (int from = 0; from < count; from += SEED_CHUNK_SIZE) {
+            employeeRepo.batchInsert(employees.subList(from, Math.min(from + SEED_CHUNK_SIZE, count)));
+        }
+
+        return employees;
+    }
+
+    static Employee employee(long i) {
+        return Employee.builder()
+                .firstName("First" + i)
+                .lastName("Last" + i)
+                .email("employee" + i + "@bench.local")
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Closed-loop HTTP load test comparing the blocking (platform thread pool) and virtual thread execution modes.
+ *
+ *   mvn -Pbenchmark -DskipTests test-compile exec:exec@load-test -Dload.args="--concurrency=400 --duration=30"
+ *
+ * Without --base-url it boots the application in-process once per mode against the benchmark database, which
+ * shows the Tomcat thread ceiling but not real MySQL latency. For that, start the application twice against
+ * MySQL (with and without --employee.execution.virtual-threads=true) and point --base-url at each.
+ */
+public final class EmployeeApiLoadTest {
+
+    private static final int SEEDED_EMPLOYEES = 10_000;
+
+    private EmployeeApiLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = parse(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "20")));
+        String path = options.getOrDefault("path", "/api/employees?limit=100");
+
+        if (options.containsKey("base-url")) {
+            System.out.println(run("external", URI.create(options.get("base-url") + path), concurrency, duration));
+            return;
+        }
+
+        List<String[]> modes = new ArrayList<>();
+        modes.add(new String[]{"blocking", "--employee.execution.virtual-threads=false"});
+        if (Runtime.version().feature() >= 21) {
+            modes.add(new String[]{"virtual-threads", "--employee.execution.virtual-threads=true"});
+        } else {
+            System.out.println("Skipping virtual-threads mode, it needs Java 21+ (running " + Runtime.version() + ")");
+        }
+
+        String tomcatThreads = "--server.tomcat.threads.max=" + options.getOrDefault("tomcat-threads", "200");
+        for (String[] mode : modes) {
+            ConfigurableApplicationContext context = BenchmarkContext.start(mode[1], tomcatThreads);
+            try {
+                BenchmarkContext.seed(context.getBean(EmployeeRepo.class), SEEDED_EMPLOYEES);
+                String port = context.getEnvironment().getProperty("local.server.port");
+                System.out.println(run(mode[0], URI.create("http://localhost:" + port + path), concurrency, duration));
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static Result run(String mode, URI uri, int concurrency, Duration duration) throws InterruptedException {
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+        long[][] latencies = new long[concurrency][];
+        int[] counts = new int[concurrency];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        for (int worker = 0; worker < concurrency; worker++) {
+            int slot = worker;
+            Thread thread = new Thread(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                latencies[slot] = samples;
+                counts[slot] = count;
+                done.countDown();
+            }, "load-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int worker = 0; worker < concurrency; worker++) {
+            System.arraycopy(latencies[worker], 0, all, offset, counts[worker]);
+            offset += counts[worker];
+        }
+        Arrays.sort(all);
+
+        return new Result(mode, concurrency, total, errors.get(), duration, all);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Result {
+
+        private final String mode;
+
+        private final int concurrency;
+
+        private final int requests;
+
+        private final long errors;
+
+        private final Duration duration;
+
+        private final long[] sortedLatencies;
+
+        private Result(String mode, int concurrency, int requests, long errors, Duration duration, long[] sortedLatencies) {
+            this.mode = mode;
+            this.concurrency = concurrency;
+            this.requests = requests;
+            this.errors = errors;
+            this.duration = duration;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        private double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mode=%s concurrency=%d requests=%d errors=%d throughput=%.1f req/s p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                    mode, concurrency, requests, errors, requests / (double) duration.toSeconds(),
+                    percentileMillis(0.50), percentileMillis(0.99), percentileMillis(1.0));
+        }
+    }
+}
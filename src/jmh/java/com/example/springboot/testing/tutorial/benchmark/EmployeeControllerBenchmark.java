@@ -0,0 +1,70 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//full MVC dispatch (routing, service, serialization) without the network in the way
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+
+    private static final int SEEDED_EMPLOYEES = 10_000;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private List<Employee> seeded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        //one client hammering the API would be measuring 429 responses
+        context = BenchmarkContext.start("--employee.rate-limit.enabled=false", "--employee.load-shedding.enabled=false");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        seeded = BenchmarkContext.seed(context.getBean(EmployeeRepo.class), SEEDED_EMPLOYEES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getEmployeeById() throws Exception {
+        Long id = seeded.get(ThreadLocalRandom.current().nextInt(seeded.size())).getId();
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", id))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getEmployeesPage() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/employees").param("limit", "100"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    //rewrites a row with its own values, so the table stays as seeded whatever the iteration count
+    @Benchmark
+    public byte[] updateEmployee() throws Exception {
+        Employee employee = seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+        return mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}", employee.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"" + employee.getFirstName() + "\",\"lastName\":\"" + employee.getLastName()
+                                + "\",\"email\":\"" + employee.getEmail() + "\"}"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//request and response body cost of the employee API, without any database work
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeJsonBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    private ObjectMapper objectMapper;
+
+    private JavaType employeeListType;
+
+    private Employee employee;
+
+    private List<Employee> employees;
+
+    private byte[] employeeJson;
+
+    private byte[] employeesJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+
+        //same builder Spring Boot uses for the MVC message converter
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        employeeListType = objectMapper.getTypeFactory().constructCollectionType(List.class, Employee.class);
+
+        employees = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            employees.add(BenchmarkContext.employee(i).toBuilder().id((long) i + 1).version(0L).build());
+        }
+        employee = employees.get(0);
+
+        employeeJson = objectMapper.writeValueAsBytes(employee);
+        employeesJson = objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployee() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployeeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public Employee deserializeEmployee() throws IOException {
+        return objectMapper.readValue(employeeJson, Employee.class);
+    }
+
+    @Benchmark
+    public List<Employee> deserializeEmployeeList() throws IOException {
+        return objectMapper.readValue(employeesJson, employeeListType);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeRepoBenchmark {
+
+    private static final int SEEDED_EMPLOYEES = 10_000;
+
+    private static final String[] LEGACY_NAME_QUERIES = {
+            "select e from Employee e where e.firstName = ?1 and  e.lastName = ?2 ",
+            "select e from Employee e where e.firstName =?1  and  e.lastName =?2 ",
+            "select  * from  employees e where  e.first_name =?1 and e.last_name =?2",
+            "select  * from  employees e where  e.first_name =?1 and e.last_name =?2 "
+    };
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeRepo employeeRepo;
+
+    private List<Employee> seeded;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        //every lookup goes to the database: with the query cache on, findByName would measure cache hits while
+        //the legacy shapes, run without the cacheable hint, measure SQL
+        context = BenchmarkContext.start("--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        employeeRepo = context.getBean(EmployeeRepo.class);
+        seeded = BenchmarkContext.seed(employeeRepo, SEEDED_EMPLOYEES);
+        //shared, transaction-bound EntityManager proxy
+        entityManager = context.getBean(EntityManager.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Employee> findById() {
+        return employeeRepo.findById(randomSeeded().getId());
+    }
+
+    @Benchmark
+    public Optional<Employee> findByEmail() {
+        return employeeRepo.findByEmail(randomSeeded().getEmail());
+    }
+
+    //the one canonical name lookup every caller now shares
+    @Benchmark
+    public List<Employee> findByName() {
+        Employee employee = randomSeeded();
+        return employeeRepo.findByName(employee.getFirstName(), employee.getLastName(),
+                PageRequest.of(0, EmployeeRepo.NAME_LOOKUP_LIMIT)).getContent();
+    }
+
+    //the four statement texts the name lookups used to run, rotated so each one competes for
+    //query plan and prepared statement cache slots; point -Dbenchmark.datasource.url at MySQL
+    //with and without cachePrepStmts/useServerPrepStmts to see the connector side of it
+    @Benchmark
+    public List<Employee> findByNameLegacyShapes() {
+        Employee employee = randomSeeded();
+        int shape = ThreadLocalRandom.current().nextInt(LEGACY_NAME_QUERIES.length);
+        //same read-only transaction a repository query method runs in, so only the statement differs
+        return readOnlyTransaction.execute(status -> {
+            Query query = shape < 2
+                    ? entityManager.createQuery(LEGACY_NAME_QUERIES[shape], Employee.class)
+                    : entityManager.createNativeQuery(LEGACY_NAME_QUERIES[shape], Employee.class);
+            @SuppressWarnings("unchecked")
+            List<Employee> employees = query
+                    .setParameter(1, employee.getFirstName())
+                    .setParameter(2, employee.getLastName())
+                    .setMaxResults(EmployeeRepo.NAME_LOOKUP_LIMIT)
+                    .getResultList();
+            return employees;
+        });
+    }
+
+    private Employee randomSeeded() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+}
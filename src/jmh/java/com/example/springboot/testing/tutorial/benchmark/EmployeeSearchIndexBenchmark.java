@@ -0,0 +1,81 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//name search over an index of 1M employees built in memory, no database involved;
+//sample mode reports the p99/p99.9 the typeahead sees
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EmployeeSearchIndexBenchmark {
+
+    private static final int INDEXED_EMPLOYEES = 1_000_000;
+
+    private static final String[] FIRST_NAMES = {"Sihle", "Sipho", "Zinhle", "Lwazi", "Thandi", "Jabu", "Nomsa",
+            "Themba", "Lerato", "Kagiso", "Ayanda", "Bongani", "Naledi", "Mpho", "Tshepo", "Palesa", "John", "Mary",
+            "Ahmed", "Priya", "Wei", "Olga", "Pierre", "José", "Ingrid", "Kwame", "Fatima", "Hiroshi", "Elena", "Liam"};
+
+    private static final String[] LAST_NAMES = {"Manaka", "Mokoena", "Dube", "Nkosi", "Ndlovu", "Khumalo", "Zulu",
+            "Mahlangu", "Botha", "Naidoo", "Smith", "Jones", "Pillay", "Van der Merwe", "Mthembu", "Sithole",
+            "Mabaso", "Radebe", "Molefe", "Cele", "Garcia", "Müller", "Nakamura", "Ivanova", "Dubois", "Mensah"};
+
+    //long tail of generated names, most employees have one of these
+    private static final String[] SYLLABLES = {"ba", "be", "bo", "da", "de", "di", "ka", "ke", "ko", "la", "le", "li",
+            "lo", "ma", "me", "mi", "mo", "na", "ne", "ni", "no", "pa", "pe", "ra", "re", "ri", "ro", "sa", "se", "si",
+            "ta", "te", "ti", "to", "tha", "the", "wa", "ya", "za", "zo"};
+
+    //how often a name comes from the common names above rather than the tail
+    private static final double COMMON_NAME_SHARE = 0.15;
+
+    @Param({"sih", "manaka", "manska", "sihle man", "zin mokoena", "sihel man"})
+    public String query;
+
+    private EmployeeSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        index = new EmployeeSearchIndex(null, true, 0.5);
+        SplittableRandom random = new SplittableRandom(42);
+        index.build(sink -> {
+            for (long i = 1; i <= INDEXED_EMPLOYEES; i++) {
+                String firstName = name(random, FIRST_NAMES);
+                String lastName = name(random, LAST_NAMES);
+                sink.accept(Employee.builder()
+                        .id(i)
+                        .firstName(firstName)
+                        .lastName(lastName)
+                        .email(firstName.toLowerCase() + "." + lastName.toLowerCase().replace(' ', '-') + i + "@bench.local")
+                        .version(0L)
+                        .build());
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Employee> search() {
+        return index.search(query, 10);
+    }
+
+    private static String name(SplittableRandom random, String[] common) {
+
+        if (random.nextDouble() < COMMON_NAME_SHARE) {
+            return common[random.nextInt(common.length)];
+        }
+        StringBuilder name = new StringBuilder();
+        for (int syllables = 2 + random.nextInt(2); syllables > 0; syllables--) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    private static final int SEEDED_EMPLOYEES = 10_000;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeServiceImplemantation employeeService;
+
+    private EmployeeCache employeeCache;
+
+    private List<Employee> seeded;
+
+    //new employees continue numbering after the seeded ones so emails never collide
+    private final AtomicLong nextEmployee = new AtomicLong(SEEDED_EMPLOYEES);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start();
+        employeeService = context.getBean(EmployeeServiceImplemantation.class);
+        employeeCache = context.getBean(EmployeeCache.class);
+        seeded = BenchmarkContext.seed(context.getBean(EmployeeRepo.class), SEEDED_EMPLOYEES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //duplicate-email check plus insert
+    @Benchmark
+    public Employee saveEmployee() {
+        return employeeService.saveEmployee(BenchmarkContext.employee(nextEmployee.getAndIncrement()));
+    }
+
+    //duplicate-email check that rejects the row
+    @Benchmark
+    public Object saveEmployeeDuplicateEmail() {
+        Employee existing = randomSeeded();
+        try {
+            return employeeService.saveEmployee(BenchmarkContext.employee(existing.getId()).toBuilder()
+                    .email(existing.getEmail())
+                    .build());
+        } catch (ResourceNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Optional<Employee> getEmployeeById() {
+        return employeeService.getEmployeeById(randomSeeded().getId());
+    }
+
+    //same lookup with the in-process cache taken out of the picture
+    @Benchmark
+    public Optional<Employee> getEmployeeByIdUncached() {
+        Long id = randomSeeded().getId();
+        employeeCache.evict(id);
+        return employeeService.getEmployeeById(id);
+    }
+
+    private Employee randomSeeded() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springboot.testing.tutorial.benchmark;
+
+import com.example.springboot.testing.tutorial.config.EmployeeJacksonModule;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+//employee list bodies in each wire format the API negotiates; "reflective-json" is Jackson's bean serializer,
+//the others use EmployeeJacksonModule as the application does. Body sizes, raw and gzipped, are printed at setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeWireFormatBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    @Param({"reflective-json", "json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private JavaType employeeListType;
+
+    private List<Employee> employees;
+
+    private byte[] employeesBody;
+
+    @Setup
+    public void setup() throws IOException {
+
+        objectMapper = mapper(format);
+        employeeListType = objectMapper.getTypeFactory().constructCollectionType(List.class, Employee.class);
+
+        employees = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            employees.add(BenchmarkContext.employee(i).toBuilder().id((long) i + 1).version(0L).build());
+        }
+        employeesBody = objectMapper.writeValueAsBytes(employees);
+
+        System.out.printf("%nformat=%s bytes_per_employee=%d gzip_bytes_per_employee=%d%n",
+                format, employeesBody.length / LIST_SIZE, gzip(employeesBody).length / LIST_SIZE);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployeeList() throws IOException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public List<Employee> deserializeEmployeeList() throws IOException {
+        return objectMapper.readValue(employeesBody, employeeListType);
+    }
+
+    private static ObjectMapper mapper(String format) {
+
+        //same builder Spring Boot uses for the MVC message converters
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (!format.equals("reflective-json")) {
+            builder.modulesToInstall(new EmployeeJacksonModule());
+        }
+        switch (format) {
+            case "reflective-json":
+            case "json":
+                return builder.factory(new JsonFactory()).build();
+            case "smile":
+                return builder.factory(new SmileFactory()).build();
+            case "cbor":
+                return builder.factory(new CBORFactory()).build();
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -2,12 +2,18 @@ package com.example.springboot.testing.tutorial;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class SpringbootTestingTutorialApplication {
 
+    //enough for every step of a start, see StartupReport and /actuator/startup
+    private static final int STARTUP_STEPS = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(SpringbootTestingTutorialApplication.class, args);
+        SpringApplication application = new SpringApplication(SpringbootTestingTutorialApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,227 @@
+package com.example.springboot.testing.tutorial.cache;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+//bounded read-through cache in front of the employees table, keyed by id with a secondary normalized email -> id index;
+//misses for the same id or email running at the same time share one load.
+//Every evict bumps a generation; a load takes the generation before it reads and its put is dropped if an evict came
+//in between, so a read that raced an update can not put the old row back after the update's evict.
+@Component
+public class EmployeeCache implements MeterBinder {
+
+    //ids share generation counters by stripe; an evict only costs the other ids of its stripe a cache fill
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<Long, Employee> employeesById;
+
+    //only ever holds emails of employees currently in employeesById, the removal listener keeps them in step
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray generationsById = new AtomicLongArray(GENERATION_STRIPES);
+
+    //loads by email do not know their id up front, any evict counts for them
+    private final AtomicLong emailGeneration = new AtomicLong();
+
+    private final Duration loadTimeout;
+
+    private final LongAdder emailHits = new LongAdder();
+
+    private final LongAdder emailMisses = new LongAdder();
+
+    private final SingleFlight<Long, Optional<Employee>> loadsById;
+
+    //keyed by normalized email
+    private final SingleFlight<String, Optional<Employee>> loadsByEmail;
+
+    public EmployeeCache(@Value("${employee.cache.max-size:10000}") long maxSize,
+                         @Value("${employee.cache.ttl:10m}") Duration ttl,
+                         @Value("${employee.cache.load-timeout:2s}") Duration loadTimeout) {
+
+        this.loadTimeout = loadTimeout;
+        this.loadsById = new SingleFlight<>("employee.by_id", loadTimeout, EmployeeCache::copyOf);
+        this.loadsByEmail = new SingleFlight<>("employee.by_email", loadTimeout, EmployeeCache::copyOf);
+
+        this.employeesById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                //run the listener on the calling thread so the email index is clean before put/invalidate returns
+                .executor(Runnable::run)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    public Optional<Employee> getById(Long id) {
+
+        Employee employee = employeesById.getIfPresent(id);
+
+        return employee == null ? Optional.empty() : Optional.of(copyOf(employee));
+    }
+
+    public Optional<Long> getIdByEmail(String email) {
+
+        String key = Employee.normalizeEmail(email);
+        Long id = key == null ? null : idsByEmail.get(key);
+
+        if (id != null) {
+            //an expired or racing id entry may leave a stale mapping behind, so confirm against the primary key
+            Employee cached = employeesById.getIfPresent(id);
+            if (cached != null && key.equals(Employee.normalizeEmail(cached.getEmail()))) {
+                emailHits.increment();
+                return Optional.of(id);
+            }
+            idsByEmail.remove(key, id);
+        }
+
+        emailMisses.increment();
+        return Optional.empty();
+    }
+
+    //taken before a load by id reads, and handed back to putLoaded
+    public long generation(Long id) {
+
+        return generationsById.get(stripe(id));
+    }
+
+    //the same for loads by email
+    public long emailGeneration() {
+
+        return emailGeneration.get();
+    }
+
+    //how long a load may take, waiting callers give up after it and loaders should time out by then
+    public Duration getLoadTimeout() {
+
+        return loadTimeout;
+    }
+
+    //runs loader for a miss, unless a load of the same id, started since its last evict, is already running
+    public Optional<Employee> loadById(Long id, Supplier<Optional<Employee>> loader) {
+
+        return loadsById.execute(id, () -> generation(id), loader);
+    }
+
+    public Optional<Employee> loadByEmail(String email, Supplier<Optional<Employee>> loader) {
+
+        return loadsByEmail.execute(Employee.normalizeEmail(email), emailGeneration::get, loader);
+    }
+
+    //for rows the caller itself just wrote
+    public void put(Employee employee) {
+
+        if (employee.getId() == null || employee.getEmail() == null) {
+            return;
+        }
+
+        //store a private copy, callers are free to mutate what they were handed
+        employeesById.put(employee.getId(), copyOf(employee));
+        idsByEmail.put(Employee.normalizeEmail(employee.getEmail()), employee.getId());
+    }
+
+    //for rows read by a load by id that took generation(id) before reading; dropped if the id was evicted since
+    public void putLoaded(Employee employee, long generation) {
+
+        putIfCurrent(employee, () -> generation(employee.getId()) == generation);
+    }
+
+    //for rows read by a load by email that took emailGeneration() before reading
+    public void putLoadedByEmail(Employee employee, long generation) {
+
+        putIfCurrent(employee, () -> emailGeneration.get() == generation);
+    }
+
+    //also lets later readers of the id, and of any email since it may have changed, start a fresh load
+    public void evict(Long id) {
+
+        //bumped before the entry goes, so a put racing this either sees the new generation or is removed below
+        generationsById.incrementAndGet(stripe(id));
+        emailGeneration.incrementAndGet();
+        employeesById.invalidate(id);
+        loadsById.forget(id);
+        loadsByEmail.forgetAll();
+    }
+
+    public void clear() {
+
+        for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+            generationsById.incrementAndGet(stripe);
+        }
+        emailGeneration.incrementAndGet();
+        employeesById.invalidateAll();
+        loadsById.forgetAll();
+        loadsByEmail.forgetAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        CaffeineCacheMetrics.monitor(registry, employeesById, "employees");
+
+        FunctionCounter.builder("employee.cache.email.lookups", emailHits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("employee.cache.email.lookups", emailMisses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+
+        loadsById.bindTo(registry);
+        loadsByEmail.bindTo(registry);
+    }
+
+    //checked again after the put: an evict landing in between has either bumped the generation already, or will
+    //invalidate the entry after us
+    private void putIfCurrent(Employee employee, BooleanSupplier current) {
+
+        if (employee.getId() == null || employee.getEmail() == null || !current.getAsBoolean()) {
+            return;
+        }
+        Employee copy = copyOf(employee);
+        employeesById.put(employee.getId(), copy);
+        idsByEmail.put(Employee.normalizeEmail(employee.getEmail()), employee.getId());
+        if (!current.getAsBoolean()) {
+            employeesById.asMap().remove(employee.getId(), copy);
+        }
+    }
+
+    private static int stripe(Long id) {
+
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+
+    private void onRemoval(Long id, Employee employee, RemovalCause cause) {
+
+        if (id != null && employee != null && employee.getEmail() != null) {
+            //only drop the mapping if a newer entry has not already claimed that email
+            idsByEmail.remove(Employee.normalizeEmail(employee.getEmail()), id);
+        }
+    }
+
+    private static Employee copyOf(Employee employee) {
+
+        return employee.toBuilder().build();
+    }
+
+    private static Optional<Employee> copyOf(Optional<Employee> employee) {
+
+        return employee.map(EmployeeCache::copyOf);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.springboot.testing.tutorial.cache;
+
+import com.example.springboot.testing.tutorial.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+//request coalescing: the first caller for a key runs the load on its own thread, callers arriving while it runs wait
+//for that result instead of issuing the same query. They get what the load returned or threw, or a 503 after the
+//timeout. A finished load is forgotten at once, so this never serves anything older than the load itself.
+//Loads are tagged with the key's generation, which the caller bumps on every write: nobody joins a load started
+//before a write, and a caller whose key was written while it waited loads again rather than take the shared result.
+//The leader's own load is not bounded here, the loader has to time out by itself (EmployeeServiceImplemantation
+//runs it in a transaction with the same timeout).
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+
+    private final Duration timeout;
+
+    //what each waiting caller gets of the shared result, so no two callers hold the same mutable object
+    private final UnaryOperator<V> shareCopy;
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(String name, Duration timeout, UnaryOperator<V> shareCopy) {
+        this.name = name;
+        this.timeout = timeout;
+        this.shareCopy = shareCopy;
+    }
+
+    public V execute(K key, LongSupplier generation, Supplier<V> loader) {
+
+        long started = generation.getAsLong();
+        Flight<V> flight = new Flight<>(started);
+        Flight<V> running;
+        //a load from an older generation may return what a write since replaced, take its place instead of joining
+        while ((running = inFlight.putIfAbsent(key, flight)) != null && running.generation < started) {
+            if (inFlight.replace(key, running, flight)) {
+                running = null;
+                break;
+            }
+        }
+
+        if (running != null) {
+            coalesced.increment();
+            V value = await(running.result);
+            if (generation.getAsLong() != started) {
+                //written while we waited, the shared load may have read the row before the write committed
+                loads.increment();
+                return loader.get();
+            }
+            return value == null ? null : shareCopy.apply(value);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    //callers arriving from now on start a new load; for writes, whose readers must not join a load started before
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("employee.single_flight.calls", loads, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "loaded")
+                .register(registry);
+        FunctionCounter.builder("employee.single_flight.calls", coalesced, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("employee.single_flight.timeouts", timeouts, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private static final class Flight<V> {
+
+        private final long generation;
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private V await(CompletableFuture<V> flight) {
+
+        try {
+            return flight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new ServiceOverloadedException("Timed out after " + timeout.toMillis() + "ms waiting for " + name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting for " + name);
+        }
+    }
+}
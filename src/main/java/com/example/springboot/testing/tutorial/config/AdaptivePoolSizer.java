@@ -0,0 +1,93 @@
+package com.example.springboot.testing.tutorial.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+//opt-in: moves Hikari's maximum pool size within [min-size, max-size] from the average connection acquire
+//time of the last interval; grows by a quarter when callers queue, shrinks one at a time when the pool idles
+@Component
+@ConditionalOnProperty(prefix = "employee.datasource.adaptive-sizing", name = "enabled", havingValue = "true")
+public class AdaptivePoolSizer {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private final HikariDataSource dataSource;
+
+    private final MeterRegistry registry;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final Duration growAbove;
+
+    private final Duration shrinkBelow;
+
+    private long lastCount;
+
+    private double lastTotalNanos;
+
+    public AdaptivePoolSizer(@Qualifier("dataSource") HikariDataSource dataSource, MeterRegistry registry,
+                             @Value("${employee.datasource.adaptive-sizing.min-size:10}") int minSize,
+                             @Value("${employee.datasource.adaptive-sizing.max-size:50}") int maxSize,
+                             @Value("${employee.datasource.adaptive-sizing.grow-above:5ms}") Duration growAbove,
+                             @Value("${employee.datasource.adaptive-sizing.shrink-below:500us}") Duration shrinkBelow) {
+        this.dataSource = dataSource;
+        this.registry = registry;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.growAbove = growAbove;
+        this.shrinkBelow = shrinkBelow;
+    }
+
+    @Scheduled(fixedDelayString = "${employee.datasource.adaptive-sizing.interval:PT10S}",
+            initialDelayString = "${employee.datasource.adaptive-sizing.interval:PT10S}")
+    public void resize() {
+
+        Timer acquire = registry.find("hikaricp.connections.acquire").tag("pool", dataSource.getPoolName()).timer();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (acquire == null || pool == null) {
+            return;
+        }
+
+        long count = acquire.count();
+        double totalNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+        long acquisitions = count - lastCount;
+        double waitedNanos = totalNanos - lastTotalNanos;
+        lastCount = count;
+        lastTotalNanos = totalNanos;
+
+        int size = dataSource.getMaximumPoolSize();
+        int waiting = pool.getThreadsAwaitingConnection();
+        long averageNanos = acquisitions == 0 ? 0 : (long) (waitedNanos / acquisitions);
+
+        int target = size;
+        if (waiting > 0 || averageNanos > growAbove.toNanos()) {
+            target = Math.min(maxSize, size + Math.max(1, size / 4));
+        } else if (averageNanos < shrinkBelow.toNanos() && pool.getActiveConnections() < size / 2) {
+            target = Math.max(minSize, size - 1);
+        }
+
+        if (target != size) {
+            //Hikari applies both at runtime, idle connections above the new size are retired as they are returned
+            dataSource.setMaximumPoolSize(target);
+            if (dataSource.getMinimumIdle() > target) {
+                dataSource.setMinimumIdle(target);
+            }
+            log.info("Resized pool {} from {} to {} connections (avg acquire {}us, {} waiting)",
+                    dataSource.getPoolName(), size, target, TimeUnit.NANOSECONDS.toMicros(averageNanos), waiting);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.springboot.testing.tutorial.config;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeRequest;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+//Employee and its API types written and read field by field instead of through Jackson's bean introspection and
+//reflective accessors, for JSON, CBOR and Smile alike since every ObjectMapper Spring Boot builds picks up Module beans.
+//The wire schema is id, firstName, lastName, email, version in that order; emailNormalized never leaves the server.
+@Component
+public class EmployeeJacksonModule extends SimpleModule {
+
+    private static final SerializableString ID = new SerializedString("id");
+
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+
+    private static final SerializableString LAST_NAME = new SerializedString("lastName");
+
+    private static final SerializableString EMAIL = new SerializedString("email");
+
+    private static final SerializableString VERSION = new SerializedString("version");
+
+    public EmployeeJacksonModule() {
+        super(EmployeeJacksonModule.class.getSimpleName());
+        addSerializer(Employee.class, new EmployeeSerializer());
+        addDeserializer(Employee.class, new EmployeeDeserializer());
+        addSerializer(EmployeeResponse.class, new EmployeeResponseSerializer());
+        addDeserializer(EmployeeRequest.class, new EmployeeRequestDeserializer());
+    }
+
+    static final class EmployeeSerializer extends StdSerializer<Employee> {
+
+        EmployeeSerializer() {
+            super(Employee.class);
+        }
+
+        @Override
+        public void serialize(Employee employee, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+            writeEmployee(generator, employee, employee.getId(), employee.getFirstName(), employee.getLastName(),
+                    employee.getEmail(), employee.getVersion());
+        }
+    }
+
+    static final class EmployeeResponseSerializer extends StdSerializer<EmployeeResponse> {
+
+        EmployeeResponseSerializer() {
+            super(EmployeeResponse.class);
+        }
+
+        @Override
+        public void serialize(EmployeeResponse employee, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+            writeEmployee(generator, employee, employee.getId(), employee.getFirstName(), employee.getLastName(),
+                    employee.getEmail(), employee.getVersion());
+        }
+    }
+
+    static final class EmployeeDeserializer extends FieldByFieldDeserializer<Employee, Employee.EmployeeBuilder> {
+
+        EmployeeDeserializer() {
+            super(Employee.class);
+        }
+
+        @Override
+        Employee.EmployeeBuilder builder() {
+            return Employee.builder();
+        }
+
+        @Override
+        boolean readField(Employee.EmployeeBuilder employee, String field, JsonParser parser,
+                          DeserializationContext context) throws IOException {
+            switch (field) {
+                case "id":
+                    employee.id(readLong(parser, context));
+                    return true;
+                case "firstName":
+                    employee.firstName(readString(parser, context));
+                    return true;
+                case "lastName":
+                    employee.lastName(readString(parser, context));
+                    return true;
+                case "email":
+                    employee.email(readString(parser, context));
+                    return true;
+                case "version":
+                    employee.version(readLong(parser, context));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        Employee build(Employee.EmployeeBuilder employee) {
+            return employee.build();
+        }
+    }
+
+    //an id in the body is skipped like any other unknown field
+    static final class EmployeeRequestDeserializer extends FieldByFieldDeserializer<EmployeeRequest, EmployeeRequest.EmployeeRequestBuilder> {
+
+        EmployeeRequestDeserializer() {
+            super(EmployeeRequest.class);
+        }
+
+        @Override
+        EmployeeRequest.EmployeeRequestBuilder builder() {
+            return EmployeeRequest.builder();
+        }
+
+        @Override
+        boolean readField(EmployeeRequest.EmployeeRequestBuilder request, String field, JsonParser parser,
+                          DeserializationContext context) throws IOException {
+            switch (field) {
+                case "firstName":
+                    request.firstName(readString(parser, context));
+                    return true;
+                case "lastName":
+                    request.lastName(readString(parser, context));
+                    return true;
+                case "email":
+                    request.email(readString(parser, context));
+                    return true;
+                case "version":
+                    request.version(readLong(parser, context));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        EmployeeRequest build(EmployeeRequest.EmployeeRequestBuilder request) {
+            return request.build();
+        }
+    }
+
+    //unknown fields are skipped, as with the reflective reader (FAIL_ON_UNKNOWN_PROPERTIES is off in Spring Boot)
+    abstract static class FieldByFieldDeserializer<T, B> extends StdDeserializer<T> {
+
+        FieldByFieldDeserializer(Class<T> type) {
+            super(type);
+        }
+
+        abstract B builder();
+
+        //called with the parser on the field's value; false for a field this type does not have
+        abstract boolean readField(B builder, String field, JsonParser parser, DeserializationContext context) throws IOException;
+
+        abstract T build(B builder);
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+
+            String field;
+            if (parser.isExpectedStartObjectToken()) {
+                field = parser.nextFieldName();
+            } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+                field = parser.currentName();
+            } else {
+                return (T) context.handleUnexpectedToken(handledType(), parser);
+            }
+
+            B builder = builder();
+            for (; field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                if (!readField(builder, field, parser, context)) {
+                    parser.skipChildren();
+                }
+            }
+            return build(builder);
+        }
+    }
+
+    private static void writeEmployee(JsonGenerator generator, Object employee, Long id, String firstName,
+                                      String lastName, String email, Long version) throws IOException {
+
+        generator.writeStartObject(employee);
+        writeNumber(generator, ID, id);
+        writeString(generator, FIRST_NAME, firstName);
+        writeString(generator, LAST_NAME, lastName);
+        writeString(generator, EMAIL, email);
+        writeNumber(generator, VERSION, version);
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializableString name, Long value) throws IOException {
+
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+
+        generator.writeFieldName(name);
+        generator.writeString(value);
+    }
+
+    //anything but the plain token goes through Jackson's own reader, so coercion and error messages stay the same
+    private static Long readLong(JsonParser parser, DeserializationContext context) throws IOException {
+        return parser.hasToken(JsonToken.VALUE_NUMBER_INT) ? parser.getLongValue() : context.readValue(parser, Long.class);
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        return parser.hasToken(JsonToken.VALUE_STRING) ? parser.getText() : context.readValue(parser, String.class);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+//read-your-writes over a lagging replica: a client that sends a write gets a cookie that expires after the window,
+//and its requests run pinned to the primary while the cookie is present. The client keeps the state, so it works
+//across instances without a shared store. A client that does not keep cookies can send the header itself
+//(Cookie: employees-read-primary=1) for as long as it needs its own writes back; without it, it may read the replica.
+//The pin is a thread-local: applicationTaskExecutor work (StreamingResponseBody) gets it through
+//readYourWritesTaskDecorator, pinned reads do not join a shared cache load, and the write-behind flusher and import
+//workers only write, which always goes to the primary.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "employees-read-primary";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            //set up front, the response may be committed by the time the chain returns; a failed write pinning
+            //the client for a few seconds costs nothing
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.getSeconds()));
+            response.addCookie(cookie);
+        }
+
+        if (!write && !hasCookie(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private static boolean hasCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springboot.testing.tutorial.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+//opt-in read/write splitting: read-only transactions go to the employee.datasource.replica pool, the rest to the
+//spring.datasource pool. Defining a DataSource makes Boot back off, so the primary pool is built the way Boot would.
+@Configuration
+@ConditionalOnProperty(prefix = "employee.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    //keeps Boot's bean name, so the Hikari metrics and the adaptive sizer still find the primary pool as "dataSource"
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("employee.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    //what JPA and everything else injecting a plain DataSource gets
+    @Bean
+    @Primary
+    public DataSource routingDataSource(@Qualifier("dataSource") DataSource primary,
+                                        @Qualifier("replicaDataSource") DataSource replica) {
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReplicaRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    //rows read from a lagging replica must not go into the second-level or query cache, where they would outlive
+    //the update that evicted them; read-only transactions still read from the cache, they just do not fill it
+    @Bean
+    public static BeanPostProcessor replicaReadCacheModeInstaller() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    ((AbstractEntityManagerFactoryBean) bean).setJpaDialect(new HibernateJpaDialect() {
+                        @Override
+                        public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+                                throws SQLException {
+                            Object transactionData = super.beginTransaction(entityManager, definition);
+                            if (definition.isReadOnly() && !ReplicaRoutingDataSource.isPinnedToPrimary()) {
+                                entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+                            }
+                            return transactionData;
+                        }
+                    });
+                }
+                return bean;
+            }
+        };
+    }
+
+    //Boot hands it to the applicationTaskExecutor, which runs StreamingResponseBody and other MVC async work
+    @Bean
+    public TaskDecorator readYourWritesTaskDecorator() {
+        return ReplicaRoutingDataSource::withCurrentPin;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${employee.datasource.replica.read-your-writes-window:5s}") Duration window) {
+
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//sends read-only transactions to the replica and everything else, including reads outside a transaction, to the primary.
+//Only works behind a LazyConnectionDataSourceProxy: the transaction manager asks for a connection before it marks
+//the transaction read-only, the proxy defers the real lookup to the first statement.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    //set for the requests of a client that wrote recently, see ReadYourWritesFilter
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    //set while the current transaction reads from the replica
+    private static final ThreadLocal<Boolean> READING_REPLICA = new ThreadLocal<>();
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    //carries the caller's pin into a task run on another thread, such as a StreamingResponseBody
+    public static Runnable withCurrentPin(Runnable task) {
+
+        if (!isPinnedToPrimary()) {
+            return task;
+        }
+        return () -> {
+            boolean alreadyPinned = isPinnedToPrimary();
+            pinToPrimary();
+            try {
+                task.run();
+            } finally {
+                if (!alreadyPinned) {
+                    unpin();
+                }
+            }
+        };
+    }
+
+    //lets callers avoid caching rows that may lag behind the primary
+    public static boolean isReadingReplica() {
+        return READING_REPLICA.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || isPinnedToPrimary()) {
+            return Route.PRIMARY;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            READING_REPLICA.set(Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    READING_REPLICA.remove();
+                }
+            });
+        }
+        return Route.REPLICA;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//background jobs such as the change log compaction
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,66 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//one log line per start with the slowest startup steps, so CI can track them between commits:
+//event=startup_report ready_ms=2140 steps=812 slowest=spring.context.refresh:1900ms,spring.beans.instantiate[entityManagerFactory]:640ms,...
+//Only filled in when the application runs with a BufferingApplicationStartup, as main does; the full timeline is
+//at /actuator/startup.
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    private final int slowestSteps;
+
+    public StartupReport(@Value("${employee.startup.report.slowest-steps:10}") int slowestSteps) {
+        this.slowestSteps = slowestSteps;
+    }
+
+    @EventListener
+    public void report(ApplicationReadyEvent event) {
+
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup)) {
+            return;
+        }
+        StartupTimeline timeline = ((BufferingApplicationStartup) event.getApplicationContext().getApplicationStartup())
+                .getBufferedTimeline();
+
+        log.info("event=startup_report ready_ms={} steps={} slowest={}",
+                Duration.between(timeline.getStartTime(), Instant.ofEpochMilli(event.getTimestamp())).toMillis(),
+                timeline.getEvents().size(), slowest(timeline.getEvents(), slowestSteps));
+    }
+
+    static String slowest(List<StartupTimeline.TimelineEvent> events, int limit) {
+        return events.stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(limit)
+                .map(event -> describe(event.getStartupStep()) + ":" + event.getDuration().toMillis() + "ms")
+                .collect(Collectors.joining(","));
+    }
+
+    //beanName tells instantiation steps apart; the other tags are class names and identity hashes
+    private static String describe(StartupStep step) {
+
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return step.getName() + "[" + tag.getValue() + "]";
+            }
+        }
+        return step.getName();
+    }
+}
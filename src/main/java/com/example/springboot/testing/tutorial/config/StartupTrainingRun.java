@@ -0,0 +1,32 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+//starts the application once and exits, for the JVM to record the classes it loaded into a class data sharing
+//archive (-XX:ArchiveClassesAtExit); see the cds profile in the pom. No request is served, so no database is needed.
+@Component
+@ConditionalOnProperty(prefix = "employee.startup", name = "training-run", havingValue = "true")
+public class StartupTrainingRun implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+    private final ConfigurableApplicationContext context;
+
+    public StartupTrainingRun(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+
+        log.info("event=startup_training_run_done");
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -1,69 +1,540 @@
 package com.example.springboot.testing.tutorial.controller;
 
+import com.example.springboot.testing.tutorial.exception.EmployeeVersionConflictException;
+import com.example.springboot.testing.tutorial.exception.InvalidExportFormatException;
+import com.example.springboot.testing.tutorial.exception.InvalidSearchException;
+import com.example.springboot.testing.tutorial.mapper.EmployeeMapper;
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.model.EmployeeCreateStatus;
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import com.example.springboot.testing.tutorial.model.EmployeeRequest;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import com.example.springboot.testing.tutorial.ratelimit.RateLimitCost;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeImporter;
 import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeWriteBehindBuffer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+    //header carrying the id to pass as ?after= for the next page, absent on the last page
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int DEFAULT_SUGGESTIONS = 10;
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    static final String CSV_HEADER = "id,firstName,lastName,email,version";
+
+    //writer and gzip buffer per export or import, what a running export holds besides one JDBC fetch
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private EmployeeServiceImplemantation employeeServiceImplemantation;
 
+    private ObjectMapper objectMapper;
+
+    private EmployeeImporter employeeImporter;
+
+    //request bodies become Employee values and results become EmployeeResponse here, the entity never reaches Jackson
+    private EmployeeMapper employeeMapper;
+
+    //only present with employee.write-behind.enabled=true
+    private EmployeeWriteBehindBuffer writeBehindBuffer;
+
     //using constructor base injection
-    public EmployeeController(EmployeeServiceImplemantation employeeServiceImplemantation) {
+    public EmployeeController(EmployeeServiceImplemantation employeeServiceImplemantation, ObjectMapper objectMapper,
+                              EmployeeImporter employeeImporter, EmployeeMapper employeeMapper,
+                              ObjectProvider<EmployeeWriteBehindBuffer> writeBehindBuffer) {
         this.employeeServiceImplemantation = employeeServiceImplemantation;
+        this.objectMapper = objectMapper;
+        this.employeeImporter = employeeImporter;
+        this.employeeMapper = employeeMapper;
+        this.writeBehindBuffer = writeBehindBuffer.getIfAvailable();
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Employee createEmployee(@RequestBody Employee employee){
+    public ResponseEntity<Object> createEmployee(@RequestBody EmployeeRequest request,
+                                                 @RequestHeader(value = "Prefer", required = false) String prefer){
+
+        Employee employee = employeeMapper.toNewEmployee(request);
+
+        if(writeBehindBuffer == null){
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(employeeMapper.toResponse(employeeServiceImplemantation.saveEmployee(employee)));
+        }
 
-        return employeeServiceImplemantation.saveEmployee(employee);
+        //group commit: the create rides in the next buffered batch, 429 when the buffer is full
+        EmployeeWriteBehindBuffer.PendingCreate pending = writeBehindBuffer.submit(employee);
+
+        //Prefer: respond-async skips the wait, the client polls the ticket instead
+        if(prefer != null && prefer.contains("respond-async")){
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/employees/pending/" + pending.getTicket()))
+                    .body(writeBehindBuffer.getStatus(pending.getTicket()).orElse(null));
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(employeeMapper.toResponse(writeBehindBuffer.await(pending)));
+    }
+
+    //bulk load from a streamed CSV (header row naming firstName, lastName and email) or NDJSON body,
+    //optionally gzip-compressed; the report counts every row and lists the rejected ones by line
+    @RateLimitCost(value = "${employee.rate-limit.cost.import:50}", bulk = true)
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public EmployeeImportReport importEmployees(InputStream body,
+                                                @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+
+        EmployeeImporter.Format format = NDJSON.isCompatibleWith(contentType)
+                ? EmployeeImporter.Format.NDJSON
+                : EmployeeImporter.Format.CSV;
+        InputStream in = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, EXPORT_BUFFER_SIZE) : body;
+        Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+
+        return employeeImporter.importEmployees(new InputStreamReader(in, charset), format);
     }
 
+    //outcome of a create answered with 202: still 202 while queued, 200 once accepted or rejected
+    @GetMapping("/pending/{ticket}")
+    public ResponseEntity<EmployeeCreateStatus> getPendingCreate(@PathVariable("ticket") String ticket){
+
+        Optional<EmployeeCreateStatus> status = writeBehindBuffer == null
+                ? Optional.empty()
+                : writeBehindBuffer.getStatus(ticket);
+
+        return status
+                .map(createStatus -> createStatus.getStatus() == EmployeeCreateStatus.Status.PENDING
+                        ? ResponseEntity.accepted().body(createStatus)
+                        : ResponseEntity.ok(createStatus))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    //bulk create, every row is reported back as accepted or rejected
+    @RateLimitCost("${employee.rate-limit.cost.batch:10}")
+    @PostMapping("/batch")
+    public List<EmployeeBatchResult> createEmployees(@RequestBody List<EmployeeRequest> employees){
+
+        return employeeServiceImplemantation.saveEmployees(employeeMapper.toNewEmployees(employees));
+    }
+
+    //keyset pagination on id: ?after=<last id seen>&limit=<n>
+    @RateLimitCost("${employee.rate-limit.cost.list:10}")
     @GetMapping
-    public List<Employee> getAllEmployees(){
+    public ResponseEntity<List<EmployeeResponse>> getAllEmployees(@RequestParam(value = "after", required = false) Long after,
+                                                          @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        //the collection ETag is the change feed's high-water mark, so it moves once a write is visible in the feed
+        String etag = quote(employeeServiceImplemantation.getCollectionChangeToken());
+        if(matchesETag(ifNoneMatch, etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        //ask for one extra row so we know whether another page exists
+        List<EmployeeResponse> employees = employeeServiceImplemantation.getEmployeesAfter(after, pageSize + 1);
+
+        if(employees.size() <= pageSize){
+            return ResponseEntity.ok().eTag(etag).body(employees);
+        }
+
+        List<EmployeeResponse> page = employees.subList(0, pageSize);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.get(pageSize - 1).getId()))
+                .body(page);
+    }
+
+    //filtered, sorted keyset search returning only the requested columns:
+    //?firstName=Sih*&lastName=Manaka&email=...&sort=lastName,desc&fields=firstName,email&after=<cursor>&limit=<n>
+    @RateLimitCost("${employee.rate-limit.cost.search:10}")
+    @GetMapping("/search")
+    public ResponseEntity<List<Map<String, Object>>> searchEmployees(@RequestParam(value = "firstName", required = false) String firstName,
+                                                                     @RequestParam(value = "lastName", required = false) String lastName,
+                                                                     @RequestParam(value = "email", required = false) String email,
+                                                                     @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                                     @RequestParam(value = "fields", required = false) List<String> fields,
+                                                                     @RequestParam(value = "after", required = false) String after,
+                                                                     @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        String[] sortParts = sort.split(",", 2);
+        String sortBy = sortParts[0].trim();
+
+        EmployeeSearchCriteria.EmployeeSearchCriteriaBuilder criteria = EmployeeSearchCriteria.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .sortBy(sortBy)
+                .descending(sortParts.length > 1 && "desc".equalsIgnoreCase(sortParts[1].trim()));
+        if(fields != null){
+            fields.stream().map(String::trim).filter(field -> !field.isEmpty()).forEach(criteria::field);
+        }
+        if(after != null){
+            applyCursor(after, criteria);
+        }
+
+        List<Map<String, Object>> rows = employeeServiceImplemantation.searchEmployees(criteria.build(), pageSize + 1);
 
-        return employeeServiceImplemantation.getAllEmployees();
+        if(rows.size() <= pageSize){
+            return ResponseEntity.ok(rows);
+        }
+
+        List<Map<String, Object>> page = rows.subList(0, pageSize);
+        Map<String, Object> last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encodeCursor(last.get("id"), "id".equals(sortBy) ? null : last.get(sortBy)))
+                .body(page);
+    }
+
+    //typo-tolerant as-you-type name search: ?q=sihle man&limit=<n>, best matches first, answered from memory
+    @RateLimitCost("${employee.rate-limit.cost.name-search:2}")
+    @GetMapping(value = "/search", params = "q")
+    public List<EmployeeResponse> searchEmployeesByName(@RequestParam("q") String query,
+                                                        @RequestParam(value = "limit", defaultValue = "" + DEFAULT_SUGGESTIONS) int limit){
+
+        return employeeMapper.toResponses(
+                employeeServiceImplemantation.searchEmployeesByName(query, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE)));
+    }
+
+    //change feed for mirrors: ?since=<last seq applied>&limit=<n>, oldest first, DELETE entries are tombstones.
+    //410 means the log no longer reaches back that far and the mirror has to reload
+    @RateLimitCost("${employee.rate-limit.cost.changes:2}")
+    @GetMapping("/changes")
+    public ResponseEntity<List<EmployeeChange>> getChanges(@RequestParam(value = "since", defaultValue = "0") long since,
+                                                           @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        List<EmployeeChange> changes = employeeServiceImplemantation.getChangesSince(since, pageSize + 1);
+
+        if(changes.size() <= pageSize){
+            return ResponseEntity.ok(changes);
+        }
+
+        List<EmployeeChange> page = changes.subList(0, pageSize);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.get(pageSize - 1).getSeq()))
+                .body(page);
+    }
+
+    //whole table as one JSON array, written row by row as it comes off the database cursor
+    @RateLimitCost(value = "${employee.rate-limit.cost.export:50}", bulk = true)
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllEmployees(){
+
+        //let the generator buffer rows instead of flushing the socket after every employee
+        ObjectWriter employeeWriter = objectMapper.writerFor(EmployeeResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                employeeServiceImplemantation.forEachEmployee(employee -> {
+                    try {
+                        employeeWriter.writeValue(generator, employeeMapper.toResponse(employee));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    //whole table as NDJSON or CSV straight off a JDBC cursor: no entities, no persistence context, constant memory
+    //however many rows; gzip-compressed when the client accepts it
+    @RateLimitCost(value = "${employee.rate-limit.cost.export:50}", bulk = true)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+
+        boolean csv;
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson":
+                csv = false;
+                break;
+            case "csv":
+                csv = true;
+                break;
+            default:
+                throw new InvalidExportFormatException("Unsupported export format: " + format + ", use ndjson or csv");
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream;
+            if (csv) {
+                writeCsv(out);
+            } else {
+                writeNdjson(out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"employees." + (csv ? "csv" : "ndjson") + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") Long id){ //ResponseEntity<Employee>
+    public ResponseEntity<EmployeeResponse> getEmployeeById(@PathVariable("id") Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){ //ResponseEntity<Employee>
+
+        //a revalidation only needs the version, served from the cache or a single-column lookup
+        if(ifNoneMatch != null){
+            Optional<Long> version = employeeServiceImplemantation.getEmployeeVersion(id);
+            if(version.isPresent() && matchesETag(ifNoneMatch, etagOf(version.get()))){
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagOf(version.get())).build();
+            }
+        }
 
         return  employeeServiceImplemantation.getEmployeeById(id)
-                .map(ResponseEntity::ok)
+                .map(employee -> withETag(ResponseEntity.ok(), employee.getVersion()).body(employeeMapper.toResponse(employee)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
 
     }
 
     @PutMapping("/{id}")
-    public  ResponseEntity<Employee> updateEmployee(@PathVariable("id") long employeeId,
-                                                    @RequestBody Employee employee){
-
-        return employeeServiceImplemantation.getEmployeeById(employeeId)
-                .map(savedEmployee ->{
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
-                    savedEmployee.setEmail(employee.getEmail());
-
-                    Employee updatedEmployee = employeeServiceImplemantation.updateEmployee(savedEmployee);
-                    return new ResponseEntity<Employee>(updatedEmployee, HttpStatus.OK);
-                })
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public  ResponseEntity<EmployeeResponse> updateEmployee(@PathVariable("id") long employeeId,
+                                                            @RequestBody EmployeeRequest request,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+
+        Employee employee = employeeMapper.toEmployee(request);
+
+        //If-Match: "<version>" takes the place of a version in the body
+        boolean conditional = ifMatch != null && !"*".equals(ifMatch.trim());
+        if(conditional){
+            Long version = versionOf(ifMatch);
+            if(version == null){
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            employee.setVersion(version);
+        }
+
+        //one UPDATE statement, no load-copy-merge round trips
+        try {
+            return employeeServiceImplemantation.updateEmployee(employeeId, employee)
+                    .map(updatedEmployee -> withETag(ResponseEntity.ok(), updatedEmployee.getVersion())
+                            .body(employeeMapper.toResponse(updatedEmployee)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (EmployeeVersionConflictException e) {
+            if(!conditional){
+                throw e;
+            }
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
     }
 
     @DeleteMapping("/{id}")
-    public  ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeID){
+    public  ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeID,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+
+        boolean deleted;
+        if(ifMatch == null || "*".equals(ifMatch.trim())){
+            deleted = employeeServiceImplemantation.deleteEmployee(employeeID);
+        } else {
+            Long version = versionOf(ifMatch);
+            if(version == null){
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            try {
+                deleted = employeeServiceImplemantation.deleteEmployee(employeeID, version);
+            } catch (EmployeeVersionConflictException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+        }
 
-        employeeServiceImplemantation.deleteEmployee(employeeID);
+        if(!deleted){
+            return ResponseEntity.notFound().build();
+        }
 
         return new ResponseEntity<String>("Employee deleted ",HttpStatus.OK);
 
     }
+
+    //opaque search cursor: "<id>" or "<id>:<sort value>" of the last row, base64url encoded
+    static String encodeCursor(Object id, Object sortValue){
+
+        String cursor = sortValue == null ? String.valueOf(id) : id + ":" + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void applyCursor(String cursor, EmployeeSearchCriteria.EmployeeSearchCriteriaBuilder criteria){
+
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 2);
+            criteria.afterId(Long.valueOf(parts[0]));
+            criteria.afterValue(parts.length > 1 ? parts[1] : null);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchException("Invalid cursor: " + cursor);
+        }
+    }
+
+    //strong ETag of one employee: its row version
+    static String etagOf(Long version){
+
+        return quote(String.valueOf(version));
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, Long version){
+
+        return version == null ? builder : builder.eTag(etagOf(version));
+    }
+
+    //If-None-Match holds "*" or a comma separated list, W/ prefixes compare weakly
+    private static boolean matchesETag(String header, String etag){
+
+        if(header == null){
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if(tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //version from an If-Match of the form "<version>", null for anything else
+    private static Long versionOf(String ifMatch){
+
+        String tag = ifMatch.trim();
+        if(tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")){
+            return null;
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String quote(String value){
+
+        return "\"" + value + "\"";
+    }
+
+    //one JSON object per line
+    private void writeNdjson(OutputStream out) throws IOException {
+
+        ObjectWriter employeeWriter = objectMapper.writerFor(EmployeeResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            employeeServiceImplemantation.exportEmployees(employee -> {
+                try {
+                    employeeWriter.writeValue(generator, employeeMapper.toResponse(employee));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+        }
+    }
+
+    //RFC 4180: header row, CRLF line ends, fields quoted only when they need it
+    private void writeCsv(OutputStream out) throws IOException {
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+            employeeServiceImplemantation.exportEmployees(employee -> {
+                try {
+                    writer.write(String.valueOf(employee.getId()));
+                    writer.write(',');
+                    writeCsvField(writer, employee.getFirstName());
+                    writer.write(',');
+                    writeCsvField(writer, employee.getLastName());
+                    writer.write(',');
+                    writeCsvField(writer, employee.getEmail());
+                    writer.write(',');
+                    writer.write(employee.getVersion() == null ? "" : String.valueOf(employee.getVersion()));
+                    writer.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    //"gzip" in Accept-Encoding, unless it is explicitly refused with q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.springboot.testing.tutorial.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangesExpiredException extends RuntimeException{
+
+    public ChangesExpiredException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springboot.testing.tutorial.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class EmployeeVersionConflictException extends RuntimeException{
+
+    public EmployeeVersionConflictException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springboot.testing.tutorial.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidImportException extends RuntimeException{
+
+    public InvalidImportException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springboot.testing.tutorial.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class WriteBufferFullException extends RuntimeException{
+
+    public WriteBufferFullException(String msg){
+        super(msg);
+    }
+}
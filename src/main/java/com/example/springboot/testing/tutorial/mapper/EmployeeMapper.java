@@ -0,0 +1,36 @@
+package com.example.springboot.testing.tutorial.mapper;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeRequest;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import org.mapstruct.IterableMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+
+import java.util.List;
+
+//between the API types and the Employee entity; MapStruct generates EmployeeMapperImpl at compile time as plain
+//getter and builder calls, nothing is looked up by reflection at runtime
+@Mapper(componentModel = "spring")
+public interface EmployeeMapper {
+
+    EmployeeResponse toResponse(Employee employee);
+
+    List<EmployeeResponse> toResponses(List<Employee> employees);
+
+    //creates start at version 0 whatever the client sent, emailNormalized is derived when the row is written
+    @Named("create")
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "emailNormalized", ignore = true)
+    Employee toNewEmployee(EmployeeRequest request);
+
+    @IterableMapping(qualifiedByName = "create")
+    List<Employee> toNewEmployees(List<EmployeeRequest> requests);
+
+    //updates keep the version, it is the one the client read and the update is conditional on it
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "emailNormalized", ignore = true)
+    Employee toEmployee(EmployeeRequest request);
+}
@@ -0,0 +1,70 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//switched on by the "metrics" profile, see application-metrics.properties
+@Configuration
+@ConditionalOnProperty(prefix = "employee.metrics", name = "enabled", havingValue = "true")
+public class MetricsConfiguration {
+
+    //makes the @Timed annotations on the service methods record
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    //installed before the pool starts; Boot then leaves the DataSource alone instead of adding its own tracker
+    @Bean
+    public static BeanPostProcessor poolWaitMetricsTrackerInstaller(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    if (dataSource.getMetricRegistry() == null && dataSource.getMetricsTrackerFactory() == null) {
+                        dataSource.setMetricsTrackerFactory(new PoolWaitMetricsTrackerFactory(registry));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public RepositoryPoolWaitAspect repositoryPoolWaitAspect(MeterRegistry registry) {
+        return new RepositoryPoolWaitAspect(registry);
+    }
+
+    @Bean
+    public SqlStatementInspector sqlStatementInspector(MeterRegistry registry,
+                                                       @Value("${employee.metrics.sql-log-sample-rate:0}") double logSampleRate) {
+        return new SqlStatementInspector(registry, logSampleRate);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementInspectorCustomizer(SqlStatementInspector inspector) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementCountingFilter> sqlStatementCountingFilter(
+            SqlStatementInspector inspector, MeterRegistry registry,
+            @Value("${employee.metrics.n-plus-one-threshold:5}") int nPlusOneThreshold) {
+
+        FilterRegistrationBean<SqlStatementCountingFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementCountingFilter(inspector, registry, nPlusOneThreshold));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
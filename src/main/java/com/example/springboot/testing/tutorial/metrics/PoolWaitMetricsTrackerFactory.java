@@ -0,0 +1,62 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+
+//Hikari's own Micrometer tracker (hikaricp.connections.*), plus a per-thread running total of time spent
+//waiting for a connection so RepositoryPoolWaitAspect can attribute it to the repository call that waited
+public class PoolWaitMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private static final ThreadLocal<long[]> WAITED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public PoolWaitMetricsTrackerFactory(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    //only ever grows, callers take the difference of two readings so nested calls need no bookkeeping
+    public static long waitedNanos() {
+        return WAITED_NANOS.get()[0];
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+
+        //the registry is looked up when the pool starts, not when the DataSource bean is created
+        IMetricsTracker delegate = new MicrometerMetricsTrackerFactory(registry.getObject()).create(poolName, poolStats);
+
+        return new IMetricsTracker() {
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+                WAITED_NANOS.get()[0] += elapsedAcquiredNanos;
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                delegate.recordConnectionTimeout();
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+    }
+}
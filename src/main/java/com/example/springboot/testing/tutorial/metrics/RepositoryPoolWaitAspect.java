@@ -0,0 +1,36 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import java.util.concurrent.TimeUnit;
+
+//pool wait per EmployeeRepo method: connection acquire time spent inside the call,
+//0 when the surrounding transaction already held a connection
+@Aspect
+public class RepositoryPoolWaitAspect {
+
+    private final MeterRegistry registry;
+
+    public RepositoryPoolWaitAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("this(com.example.springboot.testing.tutorial.repository.EmployeeRepo)")
+    public Object recordPoolWait(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        long before = PoolWaitMetricsTrackerFactory.waitedNanos();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            Timer.builder("employee.repository.pool.wait")
+                    .description("Time EmployeeRepo calls spent waiting for a pooled connection")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .register(registry)
+                    .record(PoolWaitMetricsTrackerFactory.waitedNanos() - before, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+//records how many SQL statements each request issued and flags requests that repeat one statement too often
+public class SqlStatementCountingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementCountingFilter.class);
+
+    private final SqlStatementInspector inspector;
+
+    private final MeterRegistry registry;
+
+    private final int nPlusOneThreshold;
+
+    public SqlStatementCountingFilter(SqlStatementInspector inspector, MeterRegistry registry, int nPlusOneThreshold) {
+        this.inspector = inspector;
+        this.registry = registry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        SqlStatementInspector.RequestSqlStats stats = inspector.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inspector.end();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementInspector.RequestSqlStats stats) {
+
+        //the route template keeps the tag cardinality bounded, /api/employees/{id} rather than every id
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("employee.http.sql.statements")
+                .description("SQL statements issued per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(stats.getTotal());
+
+        if (stats.getMaxRepeats() >= nPlusOneThreshold) {
+            Counter.builder("employee.http.sql.n_plus_one")
+                    .description("Requests that ran one statement at least the N+1 threshold times")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .increment();
+            log.warn("event=n_plus_one method={} uri={} statements={} repeats={} sql=\"{}\"",
+                    request.getMethod(), uri, stats.getTotal(), stats.getMaxRepeats(), stats.getMostRepeatedSql());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+//sees every statement Hibernate prepares: counts it, attributes it to the current request and logs a sample
+public class SqlStatementInspector implements StatementInspector {
+
+    private static final Logger log = LoggerFactory.getLogger("employee.sql");
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private final Counter statements;
+
+    private final double logSampleRate;
+
+    public SqlStatementInspector(MeterRegistry registry, double logSampleRate) {
+        this.statements = Counter.builder("employee.sql.statements")
+                .description("SQL statements prepared by Hibernate")
+                .register(registry);
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+
+        statements.increment();
+
+        RequestSqlStats stats = CURRENT_REQUEST.get();
+        if (stats != null) {
+            stats.record(sql);
+        }
+
+        if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            log.info("event=sql_statement sample_rate={} request_statements={} sql=\"{}\"",
+                    logSampleRate, stats == null ? -1 : stats.getTotal(), sql);
+        }
+
+        return sql;
+    }
+
+    public RequestSqlStats begin() {
+        RequestSqlStats stats = new RequestSqlStats();
+        CURRENT_REQUEST.set(stats);
+        return stats;
+    }
+
+    public void end() {
+        CURRENT_REQUEST.remove();
+    }
+
+    //statements seen while serving one request, repeated identical statements are the N+1 signature
+    public static class RequestSqlStats {
+
+        private final Map<String, Integer> countsBySql = new HashMap<>();
+
+        private int total;
+
+        private int maxRepeats;
+
+        private String mostRepeatedSql;
+
+        void record(String sql) {
+            total++;
+            int repeats = countsBySql.merge(sql, 1, Integer::sum);
+            if (repeats > maxRepeats) {
+                maxRepeats = repeats;
+                mostRepeatedSql = sql;
+            }
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getMaxRepeats() {
+            return maxRepeats;
+        }
+
+        public String getMostRepeatedSql() {
+            return mostRepeatedSql;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.springboot.testing.tutorial.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//schema changes for migrations on tables too big to lock, used by the Java migrations in this package:
+// - MySQL adds columns with ALGORITHM=INSTANT and indexes with ALGORITHM=INPLACE, LOCK=NONE, so reads and writes go
+//   on; if the change cannot be made that way MySQL refuses it instead of silently copying the table under a lock
+// - a short lock_wait_timeout: DDL waiting for a long transaction's metadata lock would queue every later query on
+//   the table behind it, better to fail the migration and retry it
+// - backfills go in primary key ranges, each committed on its own, so no transaction holds many row locks
+//   or a long undo log
+//Each change checks the catalog first, a migration using them can run against a database that already has it.
+class OnlineSchemaChange {
+
+    private static final Logger log = LoggerFactory.getLogger(OnlineSchemaChange.class);
+
+    private static final int LOCK_WAIT_TIMEOUT_SECONDS = 5;
+
+    private final Connection connection;
+
+    private final DatabaseMetaData metaData;
+
+    private final boolean mysql;
+
+    OnlineSchemaChange(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.metaData = connection.getMetaData();
+        this.mysql = metaData.getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+
+        if (mysql) {
+            execute("SET SESSION lock_wait_timeout = " + LOCK_WAIT_TIMEOUT_SECONDS);
+        }
+    }
+
+    boolean isMysql() {
+        return mysql;
+    }
+
+    boolean hasTable(String table) throws SQLException {
+
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(),
+                identifier(table), new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    boolean hasColumn(String table, String column) throws SQLException {
+
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                identifier(table), identifier(column))) {
+            return columns.next();
+        }
+    }
+
+    //an index on exactly these columns in this order, whatever its name; the rows come by index, then position
+    boolean hasIndex(String table, boolean unique, String... columns) throws SQLException {
+
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                identifier(table), unique, false)) {
+            while (rows.next()) {
+                if (rows.getString("COLUMN_NAME") != null) {
+                    indexes.computeIfAbsent(rows.getString("INDEX_NAME"), name -> new ArrayList<>())
+                            .add(rows.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        List<String> wanted = Arrays.asList(columns);
+        return indexes.values().stream().anyMatch(wanted::equals);
+    }
+
+    //tableDefinition is the column and key list of CREATE TABLE
+    void createTable(String table, String tableDefinition) throws SQLException {
+
+        if (hasTable(table)) {
+            return;
+        }
+        execute("CREATE TABLE " + table + " (" + tableDefinition + ")" + (mysql ? " ENGINE=InnoDB" : ""));
+    }
+
+    //columnDefinition as in CREATE TABLE; NOT NULL needs a DEFAULT for the rows already there
+    void addColumn(String table, String column, String columnDefinition) throws SQLException {
+
+        if (hasColumn(table, column)) {
+            return;
+        }
+        execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + columnDefinition
+                + (mysql ? ", ALGORITHM=INSTANT" : ""));
+    }
+
+    void addIndex(String table, String index, boolean unique, String... columns) throws SQLException {
+
+        if (hasIndex(table, unique, columns)) {
+            return;
+        }
+        String columnList = String.join(", ", columns);
+        execute(mysql
+                ? "ALTER TABLE " + table + " ADD " + (unique ? "UNIQUE " : "") + "INDEX " + index + " (" + columnList + ")"
+                        + ", ALGORITHM=INPLACE, LOCK=NONE"
+                : "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + index + " ON " + table + " (" + columnList + ")");
+    }
+
+    //UPDATE table SET assignments WHERE condition, batchSize ids at a time; returns the rows changed
+    long backfill(String table, String idColumn, String assignments, String condition, int batchSize) throws SQLException {
+
+        long first;
+        long last;
+        try (Statement statement = connection.createStatement();
+             ResultSet range = statement.executeQuery("SELECT MIN(" + idColumn + "), MAX(" + idColumn + ") FROM " + table)) {
+            range.next();
+            first = range.getLong(1);
+            last = range.getLong(2);
+            if (range.wasNull()) {
+                return 0;
+            }
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        long updated = 0;
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET " + assignments
+                + " WHERE " + idColumn + " >= ? AND " + idColumn + " < ? AND (" + condition + ")")) {
+            for (long from = first; from <= last; from += batchSize) {
+                update.setLong(1, from);
+                update.setLong(2, from + batchSize);
+                updated += update.executeUpdate();
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        log.info("event=migration_backfill table={} rows={}", table, updated);
+        return updated;
+    }
+
+    private void execute(String sql) throws SQLException {
+
+        log.info("event=migration_ddl sql=\"{}\"", sql);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    //unquoted names are stored upper case by some databases (H2) and as written by others
+    private String identifier(String name) throws SQLException {
+
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springboot.testing.tutorial.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+//brings a database baselined from ddl-auto=update up to the V1 schema. The oldest ones only have id, email,
+//first_name and last_name; newer ones got version and email_normalized from update, the latter with an empty value on
+//the rows already there and without its unique index, which update could not create over those rows. Every step
+//checks the catalog first, so on a database created by V1 there is nothing to do, and a failed run can be repeated.
+public class V2__Backfill_email_normalized extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+
+        OnlineSchemaChange schema = new OnlineSchemaChange(context.getConnection());
+
+        schema.addColumn("employees", "version", "bigint");
+        schema.addColumn("employees", "email_normalized", "varchar(255) DEFAULT '' NOT NULL");
+        //rows written before @Version existed, a null version can not be compared on update
+        schema.backfill("employees", "id", "version = 0", "version IS NULL", BATCH_SIZE);
+        schema.backfill("employees", "id", "email_normalized = LOWER(TRIM(email))",
+                "email_normalized IS NULL OR email_normalized = ''", BATCH_SIZE);
+
+        if (!schema.hasIndex("employees", true, "email_normalized")) {
+            List<String> duplicates = duplicateEmails(context);
+            if (!duplicates.isEmpty()) {
+                throw new IllegalStateException("Cannot add uk_employees_email_normalized, emails differing only in case "
+                        + "or surrounding spaces have to be merged first: " + duplicates);
+            }
+            schema.addIndex("employees", "uk_employees_email_normalized", true, "email_normalized");
+        }
+        schema.addIndex("employees", "idx_employees_last_first", false, "last_name", "first_name");
+        schema.addIndex("employees", "idx_employees_first_name", false, "first_name");
+
+        schema.createTable("employee_changes", schema.isMysql()
+                ? "seq bigint not null auto_increment, changed_at datetime(6) not null, email varchar(255), "
+                        + "employee_id bigint not null, first_name varchar(255), last_name varchar(255), "
+                        + "operation varchar(10) not null, version bigint, primary key (seq)"
+                : "seq bigint generated by default as identity, changed_at timestamp not null, email varchar(255), "
+                        + "employee_id bigint not null, first_name varchar(255), last_name varchar(255), "
+                        + "operation varchar(10) not null, version bigint, primary key (seq)");
+        schema.addIndex("employee_changes", "idx_employee_changes_employee_seq", false, "employee_id", "seq");
+    }
+
+    //the backfill commits batch by batch and the index is added online, neither fits in a transaction
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    private static List<String> duplicateEmails(Context context) throws SQLException {
+
+        List<String> duplicates = new ArrayList<>();
+        try (Statement statement = context.getConnection().createStatement();
+             ResultSet rows = statement.executeQuery("SELECT email_normalized FROM employees "
+                     + "GROUP BY email_normalized HAVING COUNT(*) > 1")) {
+            while (rows.next() && duplicates.size() < 10) {
+                duplicates.add(rows.getString(1));
+            }
+        }
+        return duplicates;
+    }
+}
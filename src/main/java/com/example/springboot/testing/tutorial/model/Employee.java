@@ -1,8 +1,12 @@
 package com.example.springboot.testing.tutorial.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 
 @Data
@@ -12,9 +16,22 @@ import javax.persistence.*;
 @Setter(value = AccessLevel.PUBLIC)
 @Getter
 @Entity
-@Table(name = "employees")
+//second-level cache region, sized and expired by employee.second-level-cache.entity.*; the bulk update and delete
+//queries in EmployeeRepo invalidate it, so they are never answered from a stale entry
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
+@Table(name = "employees", indexes = {
+        //enforces one employee per email regardless of case, and serves every email lookup
+        @Index(name = "uk_employees_email_normalized", columnList = "email_normalized", unique = true),
+        //leading column last_name so the first/last name queries and a last-name-only filter both seek
+        @Index(name = "idx_employees_last_first", columnList = "last_name, first_name"),
+        //first-name prefix filters and sort=firstName pages
+        @Index(name = "idx_employees_first_name", columnList = "first_name")
+})
 public class Employee {
 
+    public static final String CACHE_REGION = "employees";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -27,4 +44,24 @@ public class Employee {
 
     @Column(name = "email", nullable = false)
     private String email;
+
+    //trimmed, lower-cased copy of email; the email column keeps whatever the client sent
+    @JsonIgnore
+    @Column(name = "email_normalized", nullable = false)
+    private String emailNormalized;
+
+    //optimistic concurrency: a PUT carrying the version it read only succeeds if nobody wrote in between
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        emailNormalized = normalizeEmail(email);
+    }
 }
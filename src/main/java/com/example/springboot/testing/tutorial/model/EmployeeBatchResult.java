@@ -0,0 +1,46 @@
+package com.example.springboot.testing.tutorial.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+//outcome of one row of a bulk create, index is the row's position in the request
+@Getter
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeBatchResult {
+
+    public enum Status {
+        ACCEPTED,
+        REJECTED
+    }
+
+    private final int index;
+
+    private final Status status;
+
+    private final Long id;
+
+    private final String email;
+
+    private final String reason;
+
+    public static EmployeeBatchResult accepted(int index, Employee employee) {
+        return EmployeeBatchResult.builder()
+                .index(index)
+                .status(Status.ACCEPTED)
+                .id(employee.getId())
+                .email(employee.getEmail())
+                .build();
+    }
+
+    public static EmployeeBatchResult rejected(int index, Employee employee, String reason) {
+        return EmployeeBatchResult.builder()
+                .index(index)
+                .status(Status.REJECTED)
+                .email(employee.getEmail())
+                .reason(reason)
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.springboot.testing.tutorial.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+//state of a create accepted with 202, polled through its ticket
+@Getter
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeCreateStatus {
+
+    public enum Status {
+        PENDING,
+        ACCEPTED,
+        REJECTED
+    }
+
+    private final String ticket;
+
+    private final Status status;
+
+    private final Long id;
+
+    private final String email;
+
+    private final String reason;
+}
@@ -0,0 +1,41 @@
+package com.example.springboot.testing.tutorial.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+//outcome of a bulk import; errors holds the first rejected rows by line number, errorsTruncated says there were more
+@Getter
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeImportReport {
+
+    private final long rows;
+
+    private final long accepted;
+
+    private final long rejected;
+
+    private final long elapsedMillis;
+
+    private final List<RowError> errors;
+
+    private final boolean errorsTruncated;
+
+    //one rejected row, line is where the record starts in the file, counting the CSV header as line 1
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowError {
+
+        private final long line;
+
+        private final String email;
+
+        private final String reason;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springboot.testing.tutorial.model;
+
+import lombok.*;
+import lombok.extern.jackson.Jacksonized;
+
+//body of a create or update; the id comes from the URL or the database, never from the client.
+//version is optional on updates, when present the update only succeeds if the row still has it
+@Getter
+@Builder
+@Jacksonized
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+public class EmployeeRequest {
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String email;
+
+    private final Long version;
+}
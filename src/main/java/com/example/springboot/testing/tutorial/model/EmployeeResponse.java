@@ -0,0 +1,23 @@
+package com.example.springboot.testing.tutorial.model;
+
+import lombok.*;
+
+//what the API returns for an employee: the row as read, detached from any persistence context.
+//The public constructor is what the JPQL constructor expressions in EmployeeRepo call
+@Getter
+@Builder
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class EmployeeResponse {
+
+    private final Long id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String email;
+
+    private final Long version;
+}
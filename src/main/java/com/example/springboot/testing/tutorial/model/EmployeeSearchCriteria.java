@@ -0,0 +1,34 @@
+package com.example.springboot.testing.tutorial.model;
+
+import lombok.*;
+
+import java.util.List;
+
+//filters, ordering and keyset position of one /search page; a filter value ending in * is a prefix match
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+public class EmployeeSearchCriteria {
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String email;
+
+    //one of id, firstName, lastName, email
+    @Builder.Default
+    private final String sortBy = "id";
+
+    private final boolean descending;
+
+    //sort value and id of the last row already seen, both null on the first page
+    private final String afterValue;
+
+    private final Long afterId;
+
+    //columns to select, empty means all of them
+    @Singular
+    private final List<String> fields;
+}
@@ -0,0 +1,60 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//token buckets as GCRA (generic cell rate algorithm): a bucket is only its theoretical arrival time, the instant it
+//will be full again, so taking tokens is one CAS on an AtomicLong and the buckets sit in a Caffeine map, no locks.
+//A bucket idle for a whole burst is full and is dropped; with more than max-keys buckets the coldest ones are.
+public class GcraRateLimiter {
+
+    private final long emissionIntervalNanos;
+
+    private final int burst;
+
+    private final long burstNanos;
+
+    private final LongSupplier clock;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public GcraRateLimiter(double tokensPerSecond, int burst, long maxKeys) {
+        this(tokensPerSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    GcraRateLimiter(double tokensPerSecond, int burst, long maxKeys, LongSupplier clock) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.burst = burst;
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .build();
+    }
+
+    //0 when the call may go ahead, otherwise the nanos until the bucket holds enough tokens for it
+    public long tryAcquire(String key, int cost) {
+
+        AtomicLong arrival = buckets.get(key, k -> new AtomicLong(clock.getAsLong()));
+        //a cost above the burst could never be paid, it takes the whole bucket instead
+        long increment = Math.min(cost, burst) * emissionIntervalNanos;
+
+        while (true) {
+            long now = clock.getAsLong();
+            long current = arrival.get();
+            long next = Math.max(current, now) + increment;
+            long waitNanos = next - now - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//adaptive load shedding: every interval compares the average connection acquire time and the average request latency
+//of the interval with their SLOs. While one is breached the shed cost halves, starting at first-shed-cost, so the
+//expensive endpoints are refused first and cheap ones only if that is not enough; each healthy interval doubles it
+//back until nothing is shed. A connection timeout in the interval counts as a breach.
+public class LoadShedder {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadShedder.class);
+
+    private static final int NOT_SHEDDING = Integer.MAX_VALUE;
+
+    //null when the DataSource is not a Hikari pool, latency is then the only signal
+    private final HikariDataSource dataSource;
+
+    private final MeterRegistry registry;
+
+    private final Duration poolWaitSlo;
+
+    private final Duration latencySlo;
+
+    private final int firstShedCost;
+
+    private final Duration retryAfter;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private volatile int shedCost = NOT_SHEDDING;
+
+    private long lastAcquireCount;
+
+    private double lastAcquireNanos;
+
+    private double lastTimeouts;
+
+    public LoadShedder(HikariDataSource dataSource, MeterRegistry registry, Duration poolWaitSlo, Duration latencySlo,
+                       int firstShedCost, Duration retryAfter) {
+        this.dataSource = dataSource;
+        this.registry = registry;
+        this.poolWaitSlo = poolWaitSlo;
+        this.latencySlo = latencySlo;
+        this.firstShedCost = firstShedCost;
+        this.retryAfter = retryAfter;
+        Gauge.builder("employee.http.shed.cost", this, shedder -> shedder.shedCost == NOT_SHEDDING ? 0 : shedder.shedCost)
+                .description("Lowest endpoint cost being refused with 503, 0 when nothing is shed")
+                .register(registry);
+    }
+
+    public boolean shouldShed(int cost) {
+        return cost >= shedCost;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void recordLatency(long nanos) {
+        requests.increment();
+        latencyNanos.add(nanos);
+    }
+
+    @Scheduled(fixedDelayString = "${employee.load-shedding.interval:PT1S}",
+            initialDelayString = "${employee.load-shedding.interval:PT1S}")
+    public void evaluate() {
+
+        long count = requests.sumThenReset();
+        long totalLatencyNanos = latencyNanos.sumThenReset();
+        long averageLatencyNanos = count == 0 ? 0 : totalLatencyNanos / count;
+        long averageWaitNanos = averagePoolWaitNanos();
+        boolean timedOut = poolTimedOut();
+
+        boolean breached = timedOut
+                || averageWaitNanos > poolWaitSlo.toNanos()
+                || averageLatencyNanos > latencySlo.toNanos();
+
+        int previous = shedCost;
+        int next;
+        if (breached) {
+            next = previous == NOT_SHEDDING ? firstShedCost : Math.max(1, previous / 2);
+        } else {
+            next = previous == NOT_SHEDDING || previous * 2 > firstShedCost ? NOT_SHEDDING : previous * 2;
+        }
+
+        if (next != previous) {
+            shedCost = next;
+            log.warn("event=load_shedding shed_cost={} avg_pool_wait_us={} avg_latency_ms={} pool_timeouts={}",
+                    next == NOT_SHEDDING ? "none" : next, TimeUnit.NANOSECONDS.toMicros(averageWaitNanos),
+                    TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos), timedOut);
+        }
+    }
+
+    private long averagePoolWaitNanos() {
+
+        Timer acquire = dataSource == null ? null
+                : registry.find("hikaricp.connections.acquire").tag("pool", dataSource.getPoolName()).timer();
+        if (acquire == null) {
+            return 0;
+        }
+
+        long acquireCount = acquire.count();
+        double acquireNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+        long acquisitions = acquireCount - lastAcquireCount;
+        double waitedNanos = acquireNanos - lastAcquireNanos;
+        lastAcquireCount = acquireCount;
+        lastAcquireNanos = acquireNanos;
+
+        return acquisitions == 0 ? 0 : (long) (waitedNanos / acquisitions);
+    }
+
+    private boolean poolTimedOut() {
+
+        Counter timeout = dataSource == null ? null
+                : registry.find("hikaricp.connections.timeout").tag("pool", dataSource.getPoolName()).counter();
+        if (timeout == null) {
+            return false;
+        }
+
+        double timeouts = timeout.count();
+        boolean timedOut = timeouts > lastTimeouts;
+        lastTimeouts = timeouts;
+        return timedOut;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+//per client rate limits on /api/**, plus load shedding when employee.load-shedding.enabled=true;
+//endpoint costs are the @RateLimitCost annotations on the controller
+@Configuration
+@ConditionalOnProperty(prefix = "employee.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimitConfiguration {
+
+    @Bean
+    public GcraRateLimiter rateLimiter(@Value("${employee.rate-limit.rate:50}") double tokensPerSecond,
+                                       @Value("${employee.rate-limit.burst:100}") int burst,
+                                       @Value("${employee.rate-limit.max-keys:100000}") long maxKeys) {
+        return new GcraRateLimiter(tokensPerSecond, burst, maxKeys);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "employee.load-shedding", name = "enabled", havingValue = "true")
+    public LoadShedder loadShedder(@Qualifier("dataSource") ObjectProvider<HikariDataSource> dataSource, MeterRegistry registry,
+                                   @Value("${employee.load-shedding.pool-wait-slo:50ms}") Duration poolWaitSlo,
+                                   @Value("${employee.load-shedding.latency-slo:500ms}") Duration latencySlo,
+                                   @Value("${employee.load-shedding.first-shed-cost:10}") int firstShedCost,
+                                   @Value("${employee.load-shedding.retry-after:2s}") Duration retryAfter) {
+        return new LoadShedder(dataSource.getIfAvailable(), registry, poolWaitSlo, latencySlo, firstShedCost, retryAfter);
+    }
+
+    @Bean
+    public RateLimitInterceptor rateLimitInterceptor(GcraRateLimiter rateLimiter, ObjectProvider<LoadShedder> loadShedder,
+                                                     ConfigurableBeanFactory beanFactory, MeterRegistry registry,
+                                                     @Value("${employee.rate-limit.client-header:}") String clientHeader) {
+        return new RateLimitInterceptor(rateLimiter, loadShedder.getIfAvailable(), beanFactory::resolveEmbeddedValue,
+                registry, clientHeader);
+    }
+
+    //a bean rather than this class implementing WebMvcConfigurer, so @WebMvcTest slices leave it out
+    @Bean
+    public WebMvcConfigurer rateLimitInterceptorRegistrar(RateLimitInterceptor rateLimitInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
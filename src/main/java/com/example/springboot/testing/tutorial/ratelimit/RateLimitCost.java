@@ -0,0 +1,20 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//tokens a call to the endpoint takes from the caller's bucket for that endpoint, a number or a ${property}
+//placeholder; endpoints without it cost 1
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimitCost {
+
+    String value();
+
+    //runs for as long as its data is big, so its latency says nothing about load and is kept out of load shedding
+    boolean bulk() default false;
+}
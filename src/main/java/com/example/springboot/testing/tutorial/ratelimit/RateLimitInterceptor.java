@@ -0,0 +1,125 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import com.example.springboot.testing.tutorial.exception.RateLimitExceededException;
+import com.example.springboot.testing.tutorial.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.util.StringValueResolver;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//runs before every controller method: sheds it while the service is overloaded (503), otherwise takes its cost
+//from the bucket of this client and endpoint (429 when empty), both with Retry-After. Shed calls take no tokens.
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".start";
+
+    private final GcraRateLimiter limiter;
+
+    //null when load shedding is off
+    private final LoadShedder shedder;
+
+    private final StringValueResolver placeholderResolver;
+
+    private final MeterRegistry registry;
+
+    //header naming the client, set by a trusted gateway; blank to tell clients apart by remote address
+    private final String clientHeader;
+
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(GcraRateLimiter limiter, LoadShedder shedder, StringValueResolver placeholderResolver,
+                                MeterRegistry registry, String clientHeader) {
+        this.limiter = limiter;
+        this.shedder = shedder;
+        this.placeholderResolver = placeholderResolver;
+        this.registry = registry;
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        //the async dispatch finishing a streamed response was already let through
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(((HandlerMethod) handler).getMethod(), this::endpointOf);
+
+        if (shedder != null && shedder.shouldShed(endpoint.cost)) {
+            reject(response, endpoint, "shed", shedder.getRetryAfter().toNanos());
+            throw new ServiceOverloadedException("Service is overloaded, retry later");
+        }
+
+        long waitNanos = limiter.tryAcquire(clientOf(request) + ' ' + endpoint.name, endpoint.cost);
+        if (waitNanos > 0) {
+            reject(response, endpoint, "rate_limited", waitNanos);
+            throw new RateLimitExceededException("Rate limit exceeded for " + endpoint.name + ", retry later");
+        }
+
+        if (!endpoint.bulk) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (shedder != null && start instanceof Long) {
+            shedder.recordLatency(System.nanoTime() - (Long) start);
+        }
+    }
+
+    private void reject(HttpServletResponse response, Endpoint endpoint, String reason, long retryAfterNanos) {
+
+        //whole seconds, rounded up so a client retrying on time finds the tokens there
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        registry.counter("employee.http.rejected", "endpoint", endpoint.name, "reason", reason).increment();
+    }
+
+    private String clientOf(HttpServletRequest request) {
+
+        if (StringUtils.hasText(clientHeader)) {
+            String client = request.getHeader(clientHeader);
+            if (StringUtils.hasText(client)) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private Endpoint endpointOf(Method method) {
+
+        RateLimitCost cost = method.getAnnotation(RateLimitCost.class);
+        return new Endpoint(method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                cost == null ? 1 : Integer.parseInt(placeholderResolver.resolveStringValue(cost.value()).trim()),
+                cost != null && cost.bulk());
+    }
+
+    private static final class Endpoint {
+
+        private final String name;
+
+        private final int cost;
+
+        private final boolean bulk;
+
+        private Endpoint(String name, int cost, boolean bulk) {
+            this.name = name;
+            this.cost = cost;
+            this.bulk = bulk;
+        }
+    }
+}
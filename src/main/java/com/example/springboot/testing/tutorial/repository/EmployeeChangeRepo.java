@@ -0,0 +1,75 @@
+package com.example.springboot.testing.tutorial.repository;
+
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmployeeChangeRepo extends JpaRepository<EmployeeChange, Long> {
+
+    //copies the row as it now stands into the log in the same statement, no read back into Java.
+    //The native spaces hint says only employee_changes is written; without it Hibernate drops every cache region
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.NATIVE_SPACES, value = "employee_changes"))
+    @Query(value = "insert into employee_changes (employee_id, operation, first_name, last_name, email, version, changed_at) " +
+            "select e.id, :operation, e.first_name, e.last_name, e.email, e.version, current_timestamp " +
+            "from employees e where e.id = :id", nativeQuery = true)
+    int recordSnapshot(@Param("id") Long id, @Param("operation") String operation);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.NATIVE_SPACES, value = "employee_changes"))
+    @Query(value = "insert into employee_changes (employee_id, operation, changed_at) " +
+            "values (:id, 'DELETE', current_timestamp)", nativeQuery = true)
+    int recordTombstone(@Param("id") Long id);
+
+    //the feed page after a cursor, oldest first
+    List<EmployeeChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable pageable);
+
+    //the feed page after a cursor, up to the high-water mark
+    List<EmployeeChange> findBySeqGreaterThanAndSeqLessThanEqualOrderBySeqAsc(Long seq, Long highWater, Pageable pageable);
+
+    //newest entry written at least lagMicros ago by the database clock; walks back from the newest seq, so it reads
+    //the entries of the last lag and stops
+    @Query(value = "select seq from employee_changes " +
+            "where changed_at <= timestampadd(microsecond, -:lagMicros, current_timestamp) " +
+            "order by seq desc limit 1", nativeQuery = true)
+    Optional<Long> findVisibleMaxSeq(@Param("lagMicros") long lagMicros);
+
+    @Query("select min(c.seq) from EmployeeChange c")
+    Optional<Long> findMinSeq();
+
+    @Query("select max(c.seq) from EmployeeChange c")
+    Optional<Long> findMaxSeq();
+
+    //entries a newer entry for the same employee makes redundant, the log start itself is kept
+    @Query("select c.seq from EmployeeChange c where c.seq > :logStart and exists " +
+            "(select n.seq from EmployeeChange n where n.employeeId = c.employeeId and n.seq > c.seq) order by c.seq")
+    List<Long> findSupersededSeqs(@Param("logStart") Long logStart, Pageable pageable);
+
+    //newest first, used to find where size retention cuts the log
+    @Query("select c.seq from EmployeeChange c order by c.seq desc")
+    List<Long> findSeqsNewestFirst(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmployeeChange c where c.seq in :seqs")
+    int deleteBySeqIn(@Param("seqs") Collection<Long> seqs);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmployeeChange c where c.seq <= :seq")
+    int deleteUpToSeq(@Param("seq") Long seq);
+}
@@ -2,31 +2,114 @@ package com.example.springboot.testing.tutorial.repository;
 
 
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EmployeeRepo extends JpaRepository<Employee,Long> {
+public interface EmployeeRepo extends JpaRepository<Employee,Long>, EmployeeRepoCustom {
+
+    //upper bound for the unpaged name lookups, many employees can share a first and last name
+    int NAME_LOOKUP_LIMIT = 100;
+
+    //case-insensitive, goes through the unique email_normalized index
+    default Optional<Employee> findByEmail(String email) {
+        return findByEmailNormalized(Employee.normalizeEmail(email));
+    }
+
+    //query cache: any write to employees invalidates it, so only repeated reads in between are saved
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+    Optional<Employee> findByEmailNormalized(String emailNormalized);
+
+    //which of the given normalized emails are already taken, one IN query per bulk create chunk
+    @Query("select e.emailNormalized from Employee e where e.emailNormalized in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> normalizedEmails);
+
+    //single statement update, returns the number of rows changed so a missing id can be told apart
+    default int updateById(Long id, String firstName, String lastName, String email) {
+        return updateById(id, firstName, lastName, email, Employee.normalizeEmail(email));
+    }
+
+    //same update guarded by the version the caller last read, 0 rows means missing or stale
+    default int updateByIdAndVersion(Long id, Long version, String firstName, String lastName, String email) {
+        return updateByIdAndVersion(id, version, firstName, lastName, email, Employee.normalizeEmail(email));
+    }
+
+    //bulk updates skip the entity callbacks, so the normalized email is passed in explicitly
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = :firstName, e.lastName = :lastName, e.email = :email, " +
+            "e.emailNormalized = :emailNormalized, e.version = e.version + 1 where e.id = :id")
+    int updateById(@Param("id") Long id, @Param("firstName") String firstName, @Param("lastName") String lastName,
+                   @Param("email") String email, @Param("emailNormalized") String emailNormalized);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = :firstName, e.lastName = :lastName, e.email = :email, " +
+            "e.emailNormalized = :emailNormalized, e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int updateByIdAndVersion(@Param("id") Long id, @Param("version") Long version, @Param("firstName") String firstName,
+                             @Param("lastName") String lastName, @Param("email") String email,
+                             @Param("emailNormalized") String emailNormalized);
+
+    //version alone, enough to answer a conditional GET without reading the row
+    @Query("select e.version from Employee e where e.id = :id")
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    //single statement delete, unlike deleteById it does not load the entity first
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Employee e where e.id = :id")
+    int deleteEmployeeById(@Param("id") Long id);
+
+    //delete guarded by the version the caller last read, 0 rows means missing or stale
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Employee e where e.id = :id and e.version = :version")
+    int deleteEmployeeByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    //keyset page: next rows after the given id, walks the primary key instead of counting an offset.
+    //Rows come back as EmployeeResponse values, no entities enter the persistence context
+    @Query("select new com.example.springboot.testing.tutorial.model.EmployeeResponse(e.id, e.firstName, e.lastName, e.email, e.version) " +
+            "from Employee e where e.id > :id order by e.id")
+    List<EmployeeResponse> findPageAfter(@Param("id") Long id, Pageable pageable);
+
+    //the one name lookup query: a single statement text for the prepared statement cache,
+    //seeks on (last_name, first_name) and returns at most pageable.getPageSize() rows
+    @Query("select e from Employee e where e.lastName = :lastName and e.firstName = :firstName order by e.id")
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+    Slice<Employee> findByName(@Param("firstName") String firstName, @Param("lastName") String lastName, Pageable pageable);
 
-    Optional<Employee> findByEmail(String email);
+    //the original lookups, kept for their callers: all run findByName capped at NAME_LOOKUP_LIMIT rows,
+    //code that needs more than that pages through findByName itself
 
-    //custom query using JPQL using index  param
-    @Query("select e from Employee e where e.firstName = ?1 and  e.lastName = ?2 ")
-    Employee findByJPQL(String firstName,String lastName);
+    default List<Employee> findByJPQL(String firstName, String lastName) {
+        return findByName(firstName, lastName, PageRequest.of(0, NAME_LOOKUP_LIMIT)).getContent();
+    }
 
-    //custom query using JPQL using named  param
-    @Query("select e from Employee e where e.firstName =:firstName  and  e.lastName =:lastName ")
-    Employee findByJPQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
+    default List<Employee> findByJPQLNamedParams(String firstName, String lastName) {
+        return findByName(firstName, lastName, PageRequest.of(0, NAME_LOOKUP_LIMIT)).getContent();
+    }
 
-    //custom query using native sql using index  params
-    @Query(value = "select  * from  employees e where  e.first_name =?1 and e.last_name =?2",nativeQuery = true)
-    Employee findByNativeSQL(String firstName, String lastName);
+    default List<Employee> findByNativeSQL(String firstName, String lastName) {
+        return findByName(firstName, lastName, PageRequest.of(0, NAME_LOOKUP_LIMIT)).getContent();
+    }
 
-    //custom query using native sql using named  params
-    @Query(value = "select  * from  employees e where  e.first_name =:firstName and e.last_name =:lastName",nativeQuery = true)
-    Employee findByNativeSQLNamed(@Param("firstName") String firstName,@Param("lastName") String lastName);
+    default List<Employee> findByNativeSQLNamed(String firstName, String lastName) {
+        return findByName(firstName, lastName, PageRequest.of(0, NAME_LOOKUP_LIMIT)).getContent();
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.springboot.testing.tutorial.repository;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//custom repository fragment for queries that Spring Data can not derive
+public interface EmployeeRepoCustom {
+
+    //columns a search can select and sort on, by their JSON names
+    List<String> SEARCH_FIELDS = List.of("id", "firstName", "lastName", "email", "version");
+
+    List<String> SORT_FIELDS = List.of("id", "firstName", "lastName", "email");
+
+    //walks the whole table in id order on a forward-only cursor, detaching every row once consumed
+    void forEachInIdOrder(Consumer<Employee> action);
+
+    //the same walk over plain JDBC for exports: rows become unmanaged Employee values, Hibernate never sees them
+    void forEachRowInIdOrder(Consumer<Employee> action);
+
+    //inserts all rows as one JDBC batch and sets the generated ids back on the given employees,
+    //their CREATE change feed entries go in the same transaction
+    @Transactional
+    void batchInsert(List<Employee> employees);
+
+    //one keyset page projected to the requested columns, id and the sort column are always selected
+    List<Map<String, Object>> search(EmployeeSearchCriteria criteria, int limit);
+}
@@ -0,0 +1,230 @@
+package com.example.springboot.testing.tutorial.repository;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class EmployeeRepoCustomImpl implements EmployeeRepoCustom {
+
+    //rows pulled per round trip while streaming, needs useCursorFetch=true on the MySQL url
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    //IDENTITY ids stop Hibernate from batching inserts, so bulk creates go straight through JDBC
+    private static final String INSERT_SQL =
+            "insert into employees (first_name, last_name, email, email_normalized, version) values (?, ?, ?, ?, 0)";
+
+    private static final String EXPORT_SQL =
+            "select id, first_name, last_name, email, version from employees order by id";
+
+    //the matching change feed entries, written on the same connection so they commit with the rows
+    private static final String CHANGE_SQL =
+            "insert into employee_changes (employee_id, operation, first_name, last_name, email, version, changed_at) " +
+                    "values (?, 'CREATE', ?, ?, ?, 0, current_timestamp)";
+
+    private static final String TOUCH_SQL = "update employees set version = version where 1 = 0";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmployeeRepoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void forEachInIdOrder(Consumer<Employee> action) {
+
+        try (Stream<Employee> employees = entityManager
+                .createQuery("select e from Employee e order by e.id", Employee.class)
+                .setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream()) {
+
+            employees.forEach(employee -> {
+                action.accept(employee);
+                //keep the persistence context flat no matter how many rows we walk
+                entityManager.detach(employee);
+            });
+        }
+    }
+
+    @Override
+    public void forEachRowInIdOrder(Consumer<Employee> action) {
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            //a server side cursor on MySQL with useCursorFetch=true, so only one fetch is held in memory
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) row -> action.accept(Employee.builder()
+                .id(row.getLong(1))
+                .firstName(row.getString(2))
+                .lastName(row.getString(3))
+                .email(row.getString(4))
+                .version(row.getObject(5, Long.class))
+                .build()));
+    }
+
+    @Override
+    public void batchInsert(List<Employee> employees) {
+
+        if (employees.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Employee employee : employees) {
+                    statement.setString(1, employee.getFirstName());
+                    statement.setString(2, employee.getLastName());
+                    statement.setString(3, employee.getEmail());
+                    statement.setString(4, Employee.normalizeEmail(employee.getEmail()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                //keys come back in insert order
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int row = 0;
+                    while (keys.next() && row < employees.size()) {
+                        Employee employee = employees.get(row++);
+                        employee.setId(keys.getLong(1));
+                        employee.setEmailNormalized(Employee.normalizeEmail(employee.getEmail()));
+                        employee.setVersion(0L);
+                    }
+                    if (row != employees.size()) {
+                        throw new DataRetrievalFailureException(
+                                "Expected " + employees.size() + " generated ids but got " + row);
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(CHANGE_SQL)) {
+                for (Employee employee : employees) {
+                    statement.setLong(1, employee.getId());
+                    statement.setString(2, employee.getFirstName());
+                    statement.setString(3, employee.getLastName());
+                    statement.setString(4, employee.getEmail());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+
+        //Hibernate did not see these inserts: a statement that changes nothing but names both tables as its query
+        //spaces gets cached queries over them invalidated the way Hibernate's own bulk statements are, now and
+        //again once the transaction completes
+        entityManager.createNativeQuery(TOUCH_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("employees")
+                .addSynchronizedQuerySpace("employee_changes")
+                .executeUpdate();
+    }
+
+    @Override
+    public List<Map<String, Object>> search(EmployeeSearchCriteria criteria, int limit) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+
+        //a tuple projection: only the asked-for columns are read and nothing lands in the persistence context
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("id");
+        fields.add(criteria.getSortBy());
+        fields.addAll(criteria.getFields().isEmpty() ? SEARCH_FIELDS : criteria.getFields());
+        query.multiselect(fields.stream()
+                .map(field -> employee.get(field).alias(field))
+                .collect(Collectors.toList()));
+
+        //equality and prefix LIKE only, so every filter can seek on an index
+        List<Predicate> predicates = new ArrayList<>();
+        addMatch(builder, predicates, employee.get("firstName"), criteria.getFirstName());
+        addMatch(builder, predicates, employee.get("lastName"), criteria.getLastName());
+        addMatch(builder, predicates, employee.get("emailNormalized"), Employee.normalizeEmail(criteria.getEmail()));
+
+        Path<Long> id = employee.get("id");
+        boolean descending = criteria.isDescending();
+        List<Order> orders = new ArrayList<>();
+
+        if ("id".equals(criteria.getSortBy())) {
+            if (criteria.getAfterId() != null) {
+                predicates.add(descending ? builder.lessThan(id, criteria.getAfterId())
+                        : builder.greaterThan(id, criteria.getAfterId()));
+            }
+        } else {
+            //email sorts on the indexed normalized column, id breaks ties so the keyset is unique
+            boolean byEmail = "email".equals(criteria.getSortBy());
+            Path<String> sortKey = employee.get(byEmail ? "emailNormalized" : criteria.getSortBy());
+            if (criteria.getAfterId() != null && criteria.getAfterValue() != null) {
+                String afterValue = byEmail ? Employee.normalizeEmail(criteria.getAfterValue()) : criteria.getAfterValue();
+                predicates.add(descending
+                        ? builder.or(builder.lessThan(sortKey, afterValue),
+                                builder.and(builder.equal(sortKey, afterValue), builder.lessThan(id, criteria.getAfterId())))
+                        : builder.or(builder.greaterThan(sortKey, afterValue),
+                                builder.and(builder.equal(sortKey, afterValue), builder.greaterThan(id, criteria.getAfterId()))));
+            }
+            orders.add(descending ? builder.desc(sortKey) : builder.asc(sortKey));
+        }
+        orders.add(descending ? builder.desc(id) : builder.asc(id));
+
+        query.where(predicates.toArray(new Predicate[0])).orderBy(orders);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    //"Sih*" becomes LIKE 'Sih%', anything else an exact match
+    private static void addMatch(CriteriaBuilder builder, List<Predicate> predicates, Path<String> path, String value) {
+
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (value.endsWith("*")) {
+            String prefix = value.substring(0, value.length() - 1)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
+            predicates.add(builder.like(path, prefix + "%", '\\'));
+        } else {
+            predicates.add(builder.equal(path, value));
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package com.example.springboot.testing.tutorial.search;
+
+import com.example.springboot.testing.tutorial.exception.ServiceOverloadedException;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+//in-memory typo-tolerant, as-you-type search over firstName, lastName and the local part of the email.
+//Words are cut into trigrams padded the way pg_trgm pads them ("  s", " si", "sih", ... "le "), every trigram has a
+//posting list of document numbers in ascending order. A query matches the documents sharing at least min-similarity
+//of its trigrams; its last word gets no end padding, so it also matches as a prefix while it is being typed.
+//Built from the table once the application is up, then kept current by the service's put and remove calls.
+@Component
+public class EmployeeSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSearchIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    //candidates kept by trigram score, re-ranked on whole words before trimming to the limit
+    private static final int RERANK_FACTOR = 2;
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    //tombstones are dropped once they outnumber the live documents
+    private static final int COMPACT_MIN_DOCUMENTS = 1024;
+
+    private final EmployeeRepo employeeRepo;
+
+    private final boolean enabled;
+
+    private final double minSimilarity;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //everything below is guarded by lock
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> documentsById = new HashMap<>();
+
+    private final BitSet deleted = new BitSet();
+
+    private Employee[] documents = new Employee[COMPACT_MIN_DOCUMENTS];
+
+    //two longs per document with a bit set for each of its trigrams, hashed: a check of the other query words that
+    //costs one read instead of a seek through every one of their posting lists
+    private long[] signatures = new long[COMPACT_MIN_DOCUMENTS * 2];
+
+    private int documentCount;
+
+    private int deletedCount;
+
+    //ids removed while the build is loading, so the build does not bring them back; null outside a build
+    private Set<Long> removedWhileBuilding;
+
+    private volatile boolean ready;
+
+    public EmployeeSearchIndex(EmployeeRepo employeeRepo,
+                               @Value("${employee.search-index.enabled:true}") boolean enabled,
+                               @Value("${employee.search-index.min-similarity:0.5}") double minSimilarity) {
+        this.employeeRepo = employeeRepo;
+        this.enabled = enabled;
+        this.minSimilarity = minSimilarity;
+    }
+
+    //off the startup path: until the build finishes, searches get a 503
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(() -> {
+            try {
+                build(employeeRepo::forEachRowInIdOrder);
+            } catch (RuntimeException e) {
+                log.error("event=search_index_build_failed", e);
+            }
+        }, "employee-search-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    //loads every employee the source hands out; puts and removes made meanwhile are newer than the source and win
+    public void build(Consumer<Consumer<Employee>> source) {
+
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            removedWhileBuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Employee> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+        try {
+            source.accept(employee -> {
+                batch.add(employee);
+                if (batch.size() == BUILD_BATCH_SIZE) {
+                    addLoaded(batch);
+                    batch.clear();
+                }
+            });
+            addLoaded(batch);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                removedWhileBuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("event=search_index_built documents={} elapsed_ms={}",
+                size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+            return documentCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //adds the employee, or replaces what is indexed under its id
+    public void put(Employee employee) {
+
+        if (!enabled || employee.getId() == null) {
+            return;
+        }
+        Employee copy = employee.toBuilder().build();
+
+        lock.writeLock().lock();
+        try {
+            delete(copy.getId());
+            add(copy);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            if (removedWhileBuilding != null) {
+                removedWhileBuilding.add(id);
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //best matches first: most trigrams shared with the query, then a word starting with a query word, then oldest id
+    public List<Employee> search(String query, int limit) {
+
+        if (!ready) {
+            throw new ServiceOverloadedException("Search index is " + (enabled ? "still loading" : "disabled"));
+        }
+
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        long[][] trigrams = new long[words.size()][];
+        for (int i = 0; i < words.size(); i++) {
+            //the last word may still be being typed
+            trigrams[i] = trigrams(words.get(i), i < words.size() - 1);
+        }
+
+        List<Hit> hits;
+        lock.readLock().lock();
+        try {
+            hits = topHits(trigrams, limit * RERANK_FACTOR);
+            for (Hit hit : hits) {
+                hit.employee = documents[hit.document];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (Hit hit : hits) {
+            hit.startsWithQueryWord = startsWithAny(hit.employee, words);
+        }
+        hits.sort(Comparator.comparingInt((Hit hit) -> -hit.score)
+                .thenComparing(hit -> !hit.startsWithQueryWord)
+                .thenComparingInt(hit -> hit.document));
+
+        List<Employee> employees = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            employees.add(hits.get(i).employee.toBuilder().build());
+        }
+        return employees;
+    }
+
+    //every query word has to match on its own, sharing at least min-similarity of its trigrams. The most selective
+    //word walks its posting lists to find candidates, which are then checked against the other words.
+    private List<Hit> topHits(long[][] wordTrigrams, int wanted) {
+
+        QueryWord[] queryWords = new QueryWord[wordTrigrams.length];
+        int perfectScore = 0;
+        for (int w = 0; w < wordTrigrams.length; w++) {
+            List<Postings> lists = new ArrayList<>(wordTrigrams[w].length);
+            int[] signatureBits = new int[wordTrigrams[w].length];
+            for (long trigram : wordTrigrams[w]) {
+                Postings list = postings.get(trigram);
+                if (list != null) {
+                    signatureBits[lists.size()] = signatureBit(trigram);
+                    lists.add(list);
+                }
+            }
+            int required = Math.max(1, (int) Math.ceil(wordTrigrams[w].length * minSimilarity));
+            if (lists.size() < required) {
+                return new ArrayList<>();
+            }
+            queryWords[w] = new QueryWord(lists, Arrays.copyOf(signatureBits, lists.size()), required);
+            perfectScore += lists.size();
+        }
+
+        PriorityQueue<Hit> heap = new PriorityQueue<>(wanted + 1, Comparator.comparingInt((Hit hit) -> hit.score)
+                .thenComparingInt(hit -> -hit.document));
+
+        //documents holding every trigram first, they can only tie with each other. Only when there are too few of
+        //them do the fuzzy matches get looked at.
+        List<Postings> all = new ArrayList<>();
+        for (QueryWord word : queryWords) {
+            all.addAll(word.lists);
+        }
+        collectExact(all, perfectScore, wanted, heap);
+        if (heap.size() == wanted) {
+            return new ArrayList<>(heap);
+        }
+
+        Set<Integer> exact = new HashSet<>();
+        for (Hit hit : heap) {
+            exact.add(hit.document);
+        }
+        collect(queryWords, perfectScore, wanted, heap, exact);
+        return new ArrayList<>(heap);
+    }
+
+    //intersection, shortest list first: a list that has moved past the document proposes the next one to the shortest
+    private void collectExact(List<Postings> lists, int perfectScore, int wanted, PriorityQueue<Hit> heap) {
+
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int[] cursors = new int[lists.size()];
+        int document = 0;
+        int i = 0;
+        while (true) {
+            Postings list = lists.get(i);
+            cursors[i] = list.seek(cursors[i], document);
+            if (cursors[i] == list.size) {
+                return;
+            }
+            if (list.documents[cursors[i]] != document) {
+                document = list.documents[cursors[i]];
+                if (i != 0) {
+                    i = 0;
+                    continue;
+                }
+            }
+            if (++i == lists.size()) {
+                if (!deleted.get(document)) {
+                    heap.add(new Hit(document, perfectScore));
+                    if (heap.size() == wanted) {
+                        return;
+                    }
+                }
+                document++;
+                i = 0;
+            }
+        }
+    }
+
+    private void collect(QueryWord[] queryWords, int perfectScore, int wanted, PriorityQueue<Hit> heap,
+                         Set<Integer> skipped) {
+
+        QueryWord driver = queryWords[0];
+        for (QueryWord word : queryWords) {
+            if (word.candidateBound() < driver.candidateBound()) {
+                driver = word;
+            }
+        }
+
+        while (true) {
+            int document = driver.nextCandidate();
+            if (document == Integer.MAX_VALUE) {
+                return;
+            }
+
+            int score = driver.score;
+            for (QueryWord word : queryWords) {
+                if (word != driver && !word.mayMatch(signatures[document * 2], signatures[document * 2 + 1])) {
+                    score = -1;
+                    break;
+                }
+            }
+            for (int w = 0; w < queryWords.length && score >= 0; w++) {
+                QueryWord word = queryWords[w];
+                if (word != driver) {
+                    int matched = word.matchesAt(document);
+                    if (matched < word.threshold) {
+                        score = -1;
+                        break;
+                    }
+                    score += matched;
+                }
+            }
+            if (score < 0 || deleted.get(document) || skipped.contains(document)) {
+                continue;
+            }
+
+            if (heap.size() < wanted) {
+                heap.add(new Hit(document, score));
+            } else if (score > heap.peek().score) {
+                heap.poll();
+                heap.add(new Hit(document, score));
+            }
+            if (heap.size() == wanted) {
+                //documents come in insertion order, so a later one needs a better score than the weakest hit, which
+                //it can only reach when the driver matches enough with every other word matching fully
+                int needed = heap.peek().score + 1 - (perfectScore - driver.lists.size());
+                if (needed > driver.lists.size()) {
+                    return;
+                }
+                driver.threshold = Math.max(driver.threshold, needed);
+            }
+        }
+    }
+
+    private void addLoaded(List<Employee> batch) {
+
+        lock.writeLock().lock();
+        try {
+            for (Employee employee : batch) {
+                if (!documentsById.containsKey(employee.getId()) && !removedWhileBuilding.contains(employee.getId())) {
+                    add(employee);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Employee employee) {
+
+        if (documentCount == documents.length) {
+            documents = Arrays.copyOf(documents, documentCount * 2);
+            signatures = Arrays.copyOf(signatures, documentCount * 4);
+        }
+        int document = documentCount++;
+        documents[document] = employee;
+        documentsById.put(employee.getId(), document);
+
+        for (long trigram : documentTrigrams(employee)) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(document);
+            int bit = signatureBit(trigram);
+            signatures[document * 2 + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    //leaves a tombstone, the posting lists still hold the document until the next compaction
+    private void delete(Long id) {
+
+        Integer document = documentsById.remove(id);
+        if (document != null) {
+            deleted.set(document);
+            documents[document] = null;
+            deletedCount++;
+        }
+    }
+
+    private void compactIfSparse() {
+
+        if (documentCount < COMPACT_MIN_DOCUMENTS || deletedCount * 2 < documentCount) {
+            return;
+        }
+
+        Employee[] live = new Employee[documentCount - deletedCount];
+        int next = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (!deleted.get(document)) {
+                live[next++] = documents[document];
+            }
+        }
+
+        postings.clear();
+        documentsById.clear();
+        deleted.clear();
+        documents = new Employee[Math.max(COMPACT_MIN_DOCUMENTS, live.length * 2)];
+        signatures = new long[documents.length * 2];
+        documentCount = 0;
+        deletedCount = 0;
+        for (Employee employee : live) {
+            add(employee);
+        }
+    }
+
+    //0 to 127, from the top bits of a multiplicative hash
+    private static int signatureBit(long trigram) {
+        return (int) ((trigram * 0x9E3779B97F4A7C15L) >>> 57);
+    }
+
+    private static boolean startsWithAny(Employee employee, List<String> queryWords) {
+
+        for (String word : documentWords(employee)) {
+            for (String queryWord : queryWords) {
+                if (word.startsWith(queryWord)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Set<Long> documentTrigrams(Employee employee) {
+
+        Set<Long> trigrams = new HashSet<>();
+        for (String word : documentWords(employee)) {
+            addTrigrams(word, true, trigrams);
+        }
+        return trigrams;
+    }
+
+    private static long[] trigrams(String word, boolean complete) {
+
+        Set<Long> trigrams = new LinkedHashSet<>();
+        addTrigrams(word, complete, trigrams);
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void addTrigrams(String word, boolean complete, Set<Long> trigrams) {
+
+        String padded = "  " + word + (complete ? " " : "");
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+    }
+
+    private static List<String> documentWords(Employee employee) {
+
+        List<String> words = new ArrayList<>(words(employee.getFirstName()));
+        words.addAll(words(employee.getLastName()));
+        String email = employee.getEmail();
+        if (email != null) {
+            int at = email.indexOf('@');
+            words.addAll(words(at < 0 ? email : email.substring(0, at)));
+        }
+        return words;
+    }
+
+    //lower case without accents, split on anything that is not a letter or digit
+    static List<String> words(String text) {
+
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATORS.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    //ascending document numbers, appended as documents are added
+    private static final class Postings {
+
+        private int[] documents = new int[4];
+
+        private int size;
+
+        private void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+
+        //position of the first document at or after target, galloping from position from
+        private int seek(int from, int target) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && documents[high] < target) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(documents, low, Math.min(high + 1, size), target);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+    //a query word's posting lists and a cursor into each, moving forward only
+    private static final class QueryWord {
+
+        private final List<Postings> lists;
+
+        private final int required;
+
+        //lists a candidate must share, raised above required once the heap shows fewer cannot make the top hits
+        private int threshold;
+
+        private final int[] signatureBits;
+
+        private final int[] cursors;
+
+        private final int[] heads;
+
+        private final int[] sortedHeads;
+
+        //score of the last candidate returned by nextCandidate
+        private int score;
+
+        private QueryWord(List<Postings> lists, int[] signatureBits, int required) {
+            this.lists = lists;
+            this.signatureBits = signatureBits;
+            this.required = required;
+            this.threshold = required;
+            this.cursors = new int[lists.size()];
+            this.heads = new int[lists.size()];
+            this.sortedHeads = new int[lists.size()];
+        }
+
+        //every candidate is on one of the (lists - threshold + 1) shortest lists, so their length bounds the work
+        private long candidateBound() {
+            int[] sizes = lists.stream().mapToInt(list -> list.size).sorted().toArray();
+            long bound = 0;
+            for (int i = 0; i < sizes.length - threshold + 1; i++) {
+                bound += sizes[i];
+            }
+            return bound;
+        }
+
+        //MergeSkip: the document at the smallest head is a candidate when enough lists share it; otherwise no
+        //document before the required-th smallest head can be one, and every list behind it jumps straight there
+        private int nextCandidate() {
+
+            while (true) {
+                for (int i = 0; i < heads.length; i++) {
+                    Postings list = lists.get(i);
+                    heads[i] = cursors[i] < list.size ? list.documents[cursors[i]] : Integer.MAX_VALUE;
+                }
+                System.arraycopy(heads, 0, sortedHeads, 0, heads.length);
+                Arrays.sort(sortedHeads);
+                int document = sortedHeads[0];
+                if (document == Integer.MAX_VALUE) {
+                    return document;
+                }
+
+                int count = 0;
+                while (count < sortedHeads.length && sortedHeads[count] == document) {
+                    count++;
+                }
+                if (count >= threshold) {
+                    for (int i = 0; i < heads.length; i++) {
+                        if (heads[i] == document) {
+                            cursors[i]++;
+                        }
+                    }
+                    score = count;
+                    return document;
+                }
+
+                int skipTo = sortedHeads[threshold - 1];
+                if (skipTo == Integer.MAX_VALUE) {
+                    return skipTo;
+                }
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] < skipTo) {
+                        cursors[i] = lists.get(i).seek(cursors[i], skipTo);
+                    }
+                }
+            }
+        }
+
+        //false when the signature rules the document out; true may still turn out short once the lists are read
+        private boolean mayMatch(long low, long high) {
+
+            int matched = 0;
+            for (int bit : signatureBits) {
+                if ((((bit < 64 ? low : high) >>> bit) & 1) != 0 && ++matched >= threshold) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        //how many of the lists hold the document; documents must be asked for in ascending order
+        private int matchesAt(int document) {
+
+            int matched = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings list = lists.get(i);
+                cursors[i] = list.seek(cursors[i], document);
+                if (cursors[i] < list.size && list.documents[cursors[i]] == document) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+    }
+
+    private static final class Hit {
+
+        private final int document;
+
+        private final int score;
+
+        private Employee employee;
+
+        private boolean startsWithQueryWord;
+
+        private Hit(int document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -1,19 +1,46 @@
 package com.example.springboot.testing.tutorial.service;
 
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface IEmployeeService {
 
     Employee saveEmployee(Employee employee);
 
-    List<Employee> getAllEmployees();
+    List<EmployeeBatchResult> saveEmployees(Collection<Employee> employees);
+
+    List<EmployeeResponse> getEmployeesAfter(Long afterId, int limit);
+
+    List<Map<String, Object>> searchEmployees(EmployeeSearchCriteria criteria, int limit);
+
+    List<Employee> searchEmployeesByName(String query, int limit);
+
+    void forEachEmployee(Consumer<Employee> action);
+
+    void exportEmployees(Consumer<Employee> action);
 
     Optional<Employee> getEmployeeById(Long id);
 
-    Employee updateEmployee(Employee updatedEmployee);
+    Optional<Employee> getEmployeeByEmail(String email);
+
+    Optional<Long> getEmployeeVersion(Long id);
+
+    String getCollectionChangeToken();
+
+    List<EmployeeChange> getChangesSince(long since, int limit);
+
+    Optional<Employee> updateEmployee(Long id, Employee updatedEmployee);
+
+    boolean deleteEmployee(Long id);
 
-    void deleteEmployee(Long id);
+    boolean deleteEmployee(Long id, Long version);
 }
@@ -0,0 +1,65 @@
+package com.example.springboot.testing.tutorial.service.implentation;
+
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+//keeps the change log bounded: only the latest entry per employee survives, then the oldest entries beyond max-entries go
+@Component
+@ConditionalOnProperty(prefix = "employee.changes.compaction", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class EmployeeChangeCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeCompactor.class);
+
+    //entries deleted per statement, keeps each compaction transaction short
+    static final int COMPACTION_CHUNK_SIZE = 1000;
+
+    private final EmployeeChangeRepo changeRepo;
+
+    private final int maxEntries;
+
+    public EmployeeChangeCompactor(EmployeeChangeRepo changeRepo,
+                                   @Value("${employee.changes.retention.max-entries:1000000}") int maxEntries) {
+        this.changeRepo = changeRepo;
+        this.maxEntries = maxEntries;
+    }
+
+    @Scheduled(fixedDelayString = "${employee.changes.compaction.interval:PT5M}",
+            initialDelayString = "${employee.changes.compaction.interval:PT5M}")
+    public void compact() {
+
+        Optional<Long> logStart = changeRepo.findMinSeq();
+        if (logStart.isEmpty()) {
+            return;
+        }
+
+        //a reader positioned anywhere still ends at the same state, it just skips intermediate versions
+        int superseded = 0;
+        List<Long> seqs;
+        do {
+            seqs = changeRepo.findSupersededSeqs(logStart.get(), PageRequest.of(0, COMPACTION_CHUNK_SIZE));
+            if (!seqs.isEmpty()) {
+                superseded += changeRepo.deleteBySeqIn(seqs);
+            }
+        } while (seqs.size() == COMPACTION_CHUNK_SIZE);
+
+        //size retention moves the log start, readers behind it get 410 and resync
+        int expired = 0;
+        List<Long> cutoff = changeRepo.findSeqsNewestFirst(PageRequest.of(maxEntries, 1));
+        if (!cutoff.isEmpty()) {
+            expired = changeRepo.deleteUpToSeq(cutoff.get(0));
+        }
+
+        if (superseded > 0 || expired > 0) {
+            log.info("Compacted employee change log: {} superseded and {} expired entries removed", superseded, expired);
+        }
+    }
+}
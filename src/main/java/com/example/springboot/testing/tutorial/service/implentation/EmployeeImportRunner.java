@@ -0,0 +1,97 @@
+package com.example.springboot.testing.tutorial.service.implentation;
+
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+//command line import, for files too big to upload:
+//java -jar app.jar --spring.main.web-application-type=none --employee.import.file=employees.csv[.gz]
+//Every rejected row goes to <file>.errors.csv; the application exits once the file is loaded.
+@Component
+@ConditionalOnProperty(prefix = "employee.import", name = "file")
+public class EmployeeImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImportRunner.class);
+
+    private final EmployeeImporter importer;
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path file;
+
+    private final boolean exitWhenDone;
+
+    public EmployeeImportRunner(EmployeeImporter importer, ConfigurableApplicationContext context,
+                                @Value("${employee.import.file}") String file,
+                                @Value("${employee.import.exit-when-done:true}") boolean exitWhenDone) {
+        this.importer = importer;
+        this.context = context;
+        this.file = Paths.get(file);
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+
+        EmployeeImporter.Format format = EmployeeImporter.Format.fromFileName(file.getFileName().toString());
+        Path errorFile = Paths.get(file + ".errors.csv");
+        log.info("event=import_start file={} format={} errors={}", file, format, errorFile);
+
+        EmployeeImportReport report;
+        try (Reader reader = open(file);
+             BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8)) {
+            errors.write("line,email,reason\n");
+            report = importer.importEmployees(reader, format, error -> {
+                try {
+                    errors.write(error.getLine() + "," + csvField(error.getEmail()) + "," + csvField(error.getReason()) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        log.info("event=import_report file={} rows={} accepted={} rejected={} elapsed_ms={}",
+                file, report.getRows(), report.getAccepted(), report.getRejected(), report.getElapsedMillis());
+
+        if (exitWhenDone) {
+            //the scheduler and pool threads would otherwise keep a non-web run alive
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private static Reader open(Path file) throws IOException {
+
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static String csvField(String value) {
+
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
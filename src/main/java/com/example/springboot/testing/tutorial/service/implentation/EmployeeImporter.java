@@ -0,0 +1,440 @@
+package com.example.springboot.testing.tutorial.service.implentation;
+
+import com.example.springboot.testing.tutorial.exception.InvalidImportException;
+import com.example.springboot.testing.tutorial.mapper.EmployeeMapper;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import com.example.springboot.testing.tutorial.model.EmployeeRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+//bulk load pipeline: one thread reads the file record by record, chunks of records are parsed and validated on a
+//pool across the cores, and the calling thread persists the parsed chunks in file order through saveEmployees,
+//one set-based duplicate check, one insert batch and one transaction per chunk
+@Component
+public class EmployeeImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImporter.class);
+
+    //longest value the varchar(255) columns take
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new InvalidImportException("Can not tell the format of " + fileName + ", expected .csv or .ndjson");
+        }
+    }
+
+    private final EmployeeServiceImplemantation employeeService;
+
+    private final EmployeeMapper employeeMapper;
+
+    private final ObjectReader employeeReader;
+
+    private final int parallelism;
+
+    private final int maxReportedErrors;
+
+    private final Duration progressInterval;
+
+    private final AtomicInteger importCount = new AtomicInteger();
+
+    public EmployeeImporter(EmployeeServiceImplemantation employeeService, EmployeeMapper employeeMapper, ObjectMapper objectMapper,
+                            @Value("${employee.import.parallelism:0}") int parallelism,
+                            @Value("${employee.import.max-reported-errors:10000}") int maxReportedErrors,
+                            @Value("${employee.import.progress-interval:5s}") Duration progressInterval) {
+        this.employeeService = employeeService;
+        this.employeeMapper = employeeMapper;
+        //lines bind as create requests; id, emailNormalized and the rest of an export line are skipped, so it imports as is
+        this.employeeReader = objectMapper.readerFor(EmployeeRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxReportedErrors = maxReportedErrors;
+        this.progressInterval = progressInterval;
+    }
+
+    public EmployeeImportReport importEmployees(Reader reader, Format format) throws IOException {
+        return importEmployees(reader, format, error -> { });
+    }
+
+    //rejected rows go to errorSink as they happen, so a caller can keep a full error report outside the heap
+    public EmployeeImportReport importEmployees(Reader reader, Format format,
+                                                Consumer<EmployeeImportReport.RowError> errorSink) throws IOException {
+
+        RecordReader records = new RecordReader(reader, format);
+        Progress progress = new Progress(errorSink);
+        int[] columns = format == Format.CSV ? headerColumns(records.next()) : null;
+
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "employee-import-" + importCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        //bounded read-ahead: two parsed chunks per core at most, memory does not grow with the file
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try {
+            List<Record> chunk;
+            while (!(chunk = records.next(EmployeeServiceImplemantation.BATCH_CHUNK_SIZE)).isEmpty()) {
+                List<Record> toParse = chunk;
+                inFlight.add(parsers.submit(() -> parse(toParse, format, columns)));
+                if (inFlight.size() >= parallelism * 2) {
+                    persist(inFlight.removeFirst().get(), progress);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                persist(inFlight.removeFirst().get(), progress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing employees", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        EmployeeImportReport report = progress.report();
+        log.info("event=import_done rows={} accepted={} rejected={} elapsed_ms={}",
+                report.getRows(), report.getAccepted(), report.getRejected(), report.getElapsedMillis());
+        return report;
+    }
+
+    //column positions of firstName, lastName and email; first_name style headers work too
+    private static int[] headerColumns(Record header) {
+
+        if (header == null) {
+            throw new InvalidImportException("CSV import is empty, expected a header row with firstName,lastName,email");
+        }
+        List<String> names = parseCsvRecord(header.text);
+        int[] columns = {-1, -1, -1};
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT)) {
+                case "firstname":
+                    columns[0] = i;
+                    break;
+                case "lastname":
+                    columns[1] = i;
+                    break;
+                case "email":
+                    columns[2] = i;
+                    break;
+                default:
+                    //id, version and anything else are ignored, so an export file imports as is
+            }
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0) {
+            throw new InvalidImportException("CSV header must name firstName, lastName and email columns: " + header.text);
+        }
+        return columns;
+    }
+
+    private ParsedChunk parse(List<Record> records, Format format, int[] columns) {
+
+        ParsedChunk chunk = new ParsedChunk(records.size());
+        for (Record record : records) {
+            Employee employee;
+            if (format == Format.CSV) {
+                List<String> fields = parseCsvRecord(record.text);
+                employee = Employee.builder()
+                        .firstName(field(fields, columns[0]))
+                        .lastName(field(fields, columns[1]))
+                        .email(field(fields, columns[2]))
+                        .build();
+            } else {
+                try {
+                    //ids and versions are assigned here, whatever the file says
+                    employee = employeeMapper.toNewEmployee(employeeReader.readValue(record.text));
+                    if (employee == null) {
+                        chunk.errors.add(new EmployeeImportReport.RowError(record.line, null, "Expected a JSON object"));
+                        continue;
+                    }
+                } catch (JsonProcessingException e) {
+                    chunk.errors.add(new EmployeeImportReport.RowError(record.line, null, "Malformed JSON: " + e.getOriginalMessage()));
+                    continue;
+                }
+            }
+
+            String problem = validate(employee);
+            if (problem != null) {
+                chunk.errors.add(new EmployeeImportReport.RowError(record.line, employee.getEmail(), problem));
+            } else {
+                chunk.employees.add(employee);
+                chunk.lines.add(record.line);
+            }
+        }
+        return chunk;
+    }
+
+    private static String validate(Employee employee) {
+
+        if (isBlank(employee.getFirstName()) || isBlank(employee.getLastName()) || isBlank(employee.getEmail())) {
+            return "firstName, lastName and email are required";
+        }
+        if (employee.getFirstName().length() > MAX_FIELD_LENGTH || employee.getLastName().length() > MAX_FIELD_LENGTH
+                || employee.getEmail().length() > MAX_FIELD_LENGTH) {
+            return "Fields are limited to " + MAX_FIELD_LENGTH + " characters";
+        }
+        String email = employee.getEmail().trim();
+        int at = email.indexOf('@');
+        if (at <= 0 || at != email.lastIndexOf('@') || at == email.length() - 1 || email.chars().anyMatch(Character::isWhitespace)) {
+            return "Not a valid email: " + employee.getEmail();
+        }
+        return null;
+    }
+
+    private void persist(ParsedChunk chunk, Progress progress) {
+
+        chunk.errors.forEach(progress::reject);
+        progress.rows += chunk.errors.size();
+
+        if (!chunk.employees.isEmpty()) {
+            try {
+                //duplicates in the chunk and against the table are rejected row by row here
+                List<EmployeeBatchResult> results = employeeService.saveEmployees(chunk.employees);
+                for (int i = 0; i < results.size(); i++) {
+                    EmployeeBatchResult result = results.get(i);
+                    if (result.getStatus() == EmployeeBatchResult.Status.ACCEPTED) {
+                        progress.accepted++;
+                    } else {
+                        progress.reject(new EmployeeImportReport.RowError(chunk.lines.get(i), result.getEmail(), result.getReason()));
+                    }
+                }
+            } catch (DataIntegrityViolationException e) {
+                //a concurrent create kept taking one of the emails after the duplicate check. A parsed chunk is one
+                //saveEmployees chunk and rolled back as a whole, so every row can be settled again on its own
+                for (int i = 0; i < chunk.employees.size(); i++) {
+                    Employee employee = chunk.employees.get(i);
+                    try {
+                        employeeService.saveEmployee(employee);
+                        progress.accepted++;
+                    } catch (RuntimeException rowFailure) {
+                        progress.reject(new EmployeeImportReport.RowError(chunk.lines.get(i), employee.getEmail(), rowFailure.getMessage()));
+                    }
+                }
+            }
+            progress.rows += chunk.employees.size();
+        }
+
+        progress.maybeLog();
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    //RFC 4180 fields: quoted fields may hold commas, doubled quotes and line breaks
+    static List<String> parseCsvRecord(String record) {
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    //one CSV record or NDJSON line and the line it starts on
+    private static final class Record {
+
+        private final long line;
+
+        private final String text;
+
+        private Record(long line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    //splits the input into records without parsing them, the only sequential step of the pipeline
+    private static final class RecordReader {
+
+        private final BufferedReader reader;
+
+        private final Format format;
+
+        private long line;
+
+        private RecordReader(Reader reader, Format format) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+            this.format = format;
+        }
+
+        private List<Record> next(int max) throws IOException {
+
+            List<Record> records = new ArrayList<>(max);
+            Record record;
+            while (records.size() < max && (record = next()) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+
+        //skips blank lines; a CSV record whose quotes are still open continues on the next line
+        private Record next() throws IOException {
+
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.trim().isEmpty());
+
+            long start = line;
+            if (format == Format.CSV) {
+                StringBuilder record = null;
+                while (countQuotes(record == null ? text : record) % 2 != 0) {
+                    String continuation = reader.readLine();
+                    if (continuation == null) {
+                        break;
+                    }
+                    line++;
+                    if (record == null) {
+                        record = new StringBuilder(text);
+                    }
+                    record.append('\n').append(continuation);
+                }
+                if (record != null) {
+                    text = record.toString();
+                }
+            }
+            return new Record(start, text);
+        }
+
+        private static long countQuotes(CharSequence text) {
+            return text.chars().filter(c -> c == '"').count();
+        }
+    }
+
+    private static final class ParsedChunk {
+
+        private final List<Employee> employees;
+
+        private final List<Long> lines;
+
+        private final List<EmployeeImportReport.RowError> errors = new ArrayList<>();
+
+        private ParsedChunk(int size) {
+            this.employees = new ArrayList<>(size);
+            this.lines = new ArrayList<>(size);
+        }
+    }
+
+    //only touched by the persisting thread
+    private final class Progress {
+
+        private final long started = System.nanoTime();
+
+        private final Consumer<EmployeeImportReport.RowError> errorSink;
+
+        private final List<EmployeeImportReport.RowError> errors = new ArrayList<>();
+
+        private long rows;
+
+        private long accepted;
+
+        private long rejected;
+
+        private long lastLogged = started;
+
+        private Progress(Consumer<EmployeeImportReport.RowError> errorSink) {
+            this.errorSink = errorSink;
+        }
+
+        private void reject(EmployeeImportReport.RowError error) {
+            rejected++;
+            errorSink.accept(error);
+            if (errors.size() < maxReportedErrors) {
+                errors.add(error);
+            }
+        }
+
+        private void maybeLog() {
+            long now = System.nanoTime();
+            if (now - lastLogged >= progressInterval.toNanos()) {
+                lastLogged = now;
+                long seconds = Math.max(1, Duration.ofNanos(now - started).getSeconds());
+                log.info("event=import_progress rows={} accepted={} rejected={} rows_per_second={}",
+                        rows, accepted, rejected, rows / seconds);
+            }
+        }
+
+        private EmployeeImportReport report() {
+            errors.sort(Comparator.comparingLong(EmployeeImportReport.RowError::getLine));
+            return EmployeeImportReport.builder()
+                    .rows(rows)
+                    .accepted(accepted)
+                    .rejected(rejected)
+                    .elapsedMillis(Duration.ofNanos(System.nanoTime() - started).toMillis())
+                    .errors(errors)
+                    .errorsTruncated(rejected > errors.size())
+                    .build();
+        }
+    }
+}
@@ -1,58 +1,515 @@
 package com.example.springboot.testing.tutorial.service.implentation;
 
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.config.ReplicaRoutingDataSource;
+import com.example.springboot.testing.tutorial.exception.ChangesExpiredException;
+import com.example.springboot.testing.tutorial.exception.EmployeeVersionConflictException;
+import com.example.springboot.testing.tutorial.exception.InvalidSearchException;
 import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.exception.ServiceOverloadedException;
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
 import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
 import com.example.springboot.testing.tutorial.service.IEmployeeService;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class EmployeeServiceImplemantation implements IEmployeeService {
 
+    //rows per duplicate-email IN query and per JDBC insert batch
+    static final int BATCH_CHUNK_SIZE = 500;
+
+    //a chunk whose insert lost a race with a concurrent create of one of its emails is checked and inserted again
+    //once; the second check sees the email that won and rejects that row
+    private static final int CHUNK_ATTEMPTS = 2;
+
+    //name of the unique index declared on Employee.emailNormalized
+    private static final String EMAIL_CONSTRAINT = "uk_employees_email_normalized";
+
     //@Autowired
     private EmployeeRepo employeeRepo;
 
-    public EmployeeServiceImplemantation(EmployeeRepo employeeRepo) {
+    private EmployeeCache employeeCache;
+
+    private EmployeeChangeRepo changeRepo;
+
+    private EmployeeSearchIndex searchIndex;
+
+    //cache misses load in a transaction of their own, shared by every caller waiting on the same load
+    private TransactionTemplate readOnlyTransaction;
+
+    //one per bulk create chunk, its duplicate check and insert batch commit or roll back together
+    private TransactionTemplate chunkTransaction;
+
+    //change feed entries older than this are served, see getChangesSince
+    private long changesVisibilityLagMicros;
+
+    public EmployeeServiceImplemantation(EmployeeRepo employeeRepo, EmployeeCache employeeCache,
+                                         EmployeeChangeRepo changeRepo, EmployeeSearchIndex searchIndex,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${employee.changes.write-timeout:2}") int changesWriteTimeoutSeconds,
+                                         @Value("${employee.changes.visibility-lag:5s}") Duration changesVisibilityLag) {
         this.employeeRepo = employeeRepo;
+        this.employeeCache = employeeCache;
+        this.changeRepo = changeRepo;
+        this.searchIndex = searchIndex;
+        //a writer can hold back a seq for its whole transaction, plus a second of changed_at rounding on MySQL
+        if (changesVisibilityLag.compareTo(Duration.ofSeconds(2L * changesWriteTimeoutSeconds + 1)) < 0) {
+            throw new IllegalStateException("employee.changes.visibility-lag " + changesVisibilityLag
+                    + " must be at least twice employee.changes.write-timeout plus one second");
+        }
+        this.changesVisibilityLagMicros = changesVisibilityLag.toNanos() / 1000;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setTimeout(changesWriteTimeoutSeconds);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        //the load's statements time out when its waiting callers do (whole seconds, the transaction timeout unit)
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, employeeCache.getLoadTimeout().plusMillis(999).getSeconds()));
     }
 
     @Override
+    @Timed("employee.service")
+    @Transactional(timeoutString = "${employee.changes.write-timeout:2}") //the row and its change feed entry commit together
     public Employee saveEmployee(Employee employee) {
 
-        Optional<Employee> savedEmployee = employeeRepo.findByEmail(employee.getEmail());
-
-        if(savedEmployee.isPresent()){
+        //a cached email is known to be taken without asking the database
+        if(employeeCache.getIdByEmail(employee.getEmail()).isPresent()){
             throw  new ResourceNotFoundException("Employee already exist with email: " + employee.getEmail());
         }
 
-        return employeeRepo.save(employee);
+        //no pre-check SELECT: the unique email index decides, and it cannot race with a concurrent insert
+        Employee createdEmployee;
+        try {
+            createdEmployee = employeeRepo.save(employee);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new ResourceNotFoundException("Employee already exist with email: " + employee.getEmail(), e);
+            }
+            throw e;
+        }
+        changeRepo.recordSnapshot(createdEmployee.getId(), EmployeeChange.Operation.CREATE.name());
+        //cached only once committed, and dropped if an update evicted the id in between
+        long generation = employeeCache.generation(createdEmployee.getId());
+        afterCommit(() -> {
+            employeeCache.putLoaded(createdEmployee, generation);
+            searchIndex.put(createdEmployee);
+        });
+
+        return createdEmployee;
     }
 
     @Override
-    public List<Employee> getAllEmployees() {
+    @Timed("employee.service")
+    public List<EmployeeBatchResult> saveEmployees(Collection<Employee> employees) {
+
+        List<Employee> rows = new ArrayList<>(employees);
+        EmployeeBatchResult[] results = new EmployeeBatchResult[rows.size()];
+
+        for (int from = 0; from < rows.size(); from += BATCH_CHUNK_SIZE) {
+            saveChunk(rows, from, Math.min(from + BATCH_CHUNK_SIZE, rows.size()), results);
+        }
+
+        return List.of(results);
+    }
+
+    //each chunk costs one duplicate check and one insert batch in a transaction of its own: a failed chunk leaves
+    //none of its rows behind, earlier chunks stay committed
+    private void saveChunk(List<Employee> rows, int from, int to, EmployeeBatchResult[] results) {
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                chunkTransaction.executeWithoutResult(status -> checkAndInsertChunk(rows, from, to, results));
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt == CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void checkAndInsertChunk(List<Employee> rows, int from, int to, EmployeeBatchResult[] results) {
+
+        Set<String> chunkEmails = new HashSet<>();
+        List<Integer> candidates = new ArrayList<>();
+
+        for (int index = from; index < to; index++) {
+            Employee employee = rows.get(index);
+            if (isBlank(employee.getFirstName()) || isBlank(employee.getLastName()) || isBlank(employee.getEmail())) {
+                results[index] = EmployeeBatchResult.rejected(index, employee, "firstName, lastName and email are required");
+            } else if (!chunkEmails.add(Employee.normalizeEmail(employee.getEmail()))) {
+                results[index] = EmployeeBatchResult.rejected(index, employee, "Duplicate email in request: " + employee.getEmail());
+            } else {
+                candidates.add(index);
+            }
+        }
 
-        return employeeRepo.findAll();
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> existingEmails = new HashSet<>(employeeRepo.findExistingEmails(chunkEmails));
+        List<Employee> accepted = new ArrayList<>(candidates.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(candidates.size());
+
+        for (int index : candidates) {
+            Employee employee = rows.get(index);
+            if (existingEmails.contains(Employee.normalizeEmail(employee.getEmail()))) {
+                results[index] = EmployeeBatchResult.rejected(index, employee, "Employee already exist with email: " + employee.getEmail());
+            } else {
+                accepted.add(employee);
+                acceptedIndexes.add(index);
+            }
+        }
+
+        try {
+            employeeRepo.batchInsert(accepted);
+        } catch (RuntimeException e) {
+            //the ids were handed out by a transaction that is rolling back
+            accepted.forEach(employee -> employee.setId(null));
+            throw e;
+        }
+
+        for (int i = 0; i < accepted.size(); i++) {
+            int index = acceptedIndexes.get(i);
+            results[index] = EmployeeBatchResult.accepted(index, accepted.get(i));
+        }
+        afterCommit(() -> accepted.forEach(searchIndex::put));
     }
 
     @Override
+    @Timed("employee.service")
+    @Transactional(readOnly = true)
+    public List<EmployeeResponse> getEmployeesAfter(Long afterId, int limit) {
+
+        long cursor = afterId == null ? 0L : afterId;
+
+        return employeeRepo.findPageAfter(cursor, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchEmployees(EmployeeSearchCriteria criteria, int limit) {
+
+        //column names end up in the query, so only the whitelisted ones get through
+        if(!EmployeeRepo.SORT_FIELDS.contains(criteria.getSortBy())){
+            throw new InvalidSearchException("Cannot sort by: " + criteria.getSortBy());
+        }
+        for (String field : criteria.getFields()) {
+            if(!EmployeeRepo.SEARCH_FIELDS.contains(field)){
+                throw new InvalidSearchException("Unknown field: " + field);
+            }
+        }
+
+        return employeeRepo.search(criteria, limit);
+    }
+
+    @Override
+    @Timed("employee.service")
+    public List<Employee> searchEmployeesByName(String query, int limit) {
+
+        //answered from memory, no connection taken
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(readOnly = true) //the cursor has to stay open while the caller consumes rows
+    public void forEachEmployee(Consumer<Employee> action) {
+
+        employeeRepo.forEachInIdOrder(action);
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(readOnly = true)
+    public void exportEmployees(Consumer<Employee> action) {
+
+        employeeRepo.forEachRowInIdOrder(action);
+    }
+
+    @Override
+    @Timed("employee.service")
+    //no transaction around the cache: a hit takes no connection, and callers waiting on a running load hold none
     public Optional<Employee> getEmployeeById(Long id) {
 
-        return employeeRepo.findById(id);
+        Optional<Employee> cachedEmployee = employeeCache.getById(id);
+
+        if(cachedEmployee.isPresent()){
+            return cachedEmployee;
+        }
+
+        //taken before the read, so the put is dropped if an update or delete of the id lands in between
+        long generation = employeeCache.generation(id);
+
+        //inside a caller's transaction the row may carry its own uncommitted changes, nothing to share
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            return loadAndCache(() -> employeeRepo.findById(id), employee -> employeeCache.putLoaded(employee, generation));
+        }
+        //a client that just wrote reads the primary, it must not wait on a load that may be reading the replica
+        if(ReplicaRoutingDataSource.isPinnedToPrimary()){
+            return inReadOnlyTransaction(
+                    () -> loadAndCache(() -> employeeRepo.findById(id), employee -> employeeCache.putLoaded(employee, generation)));
+        }
+        return employeeCache.loadById(id, () -> inReadOnlyTransaction(
+                () -> loadAndCache(() -> employeeRepo.findById(id), employee -> employeeCache.putLoaded(employee, generation))));
+    }
+
+    @Override
+    @Timed("employee.service")
+    public Optional<Employee> getEmployeeByEmail(String email) {
+
+        Optional<Long> cachedId = employeeCache.getIdByEmail(email);
+        if(cachedId.isPresent()){
+            Optional<Employee> cachedEmployee = employeeCache.getById(cachedId.get());
+            if(cachedEmployee.isPresent()){
+                return cachedEmployee;
+            }
+        }
+
+        long generation = employeeCache.emailGeneration();
+
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            return loadAndCache(() -> employeeRepo.findByEmail(email), employee -> employeeCache.putLoadedByEmail(employee, generation));
+        }
+        if(ReplicaRoutingDataSource.isPinnedToPrimary()){
+            return inReadOnlyTransaction(
+                    () -> loadAndCache(() -> employeeRepo.findByEmail(email), employee -> employeeCache.putLoadedByEmail(employee, generation)));
+        }
+        return employeeCache.loadByEmail(email, () -> inReadOnlyTransaction(
+                () -> loadAndCache(() -> employeeRepo.findByEmail(email), employee -> employeeCache.putLoadedByEmail(employee, generation))));
+    }
+
+    //served by the replica when read/write splitting is on
+    private Optional<Employee> loadAndCache(Supplier<Optional<Employee>> query, Consumer<Employee> cache) {
+
+        Optional<Employee> employee = query.get();
+        //a lagging replica may still hand out the row an update or delete just evicted
+        if(!ReplicaRoutingDataSource.isReadingReplica()){
+            employee.ifPresent(cache);
+        }
+
+        return employee;
+    }
+
+    //a load that outlives the cache's load timeout fails like its waiting callers do, with a 503
+    private Optional<Employee> inReadOnlyTransaction(Supplier<Optional<Employee>> load) {
+
+        try {
+            return readOnlyTransaction.execute(status -> load.get());
+        } catch (TransactionTimedOutException | QueryTimeoutException e) {
+            throw new ServiceOverloadedException("Timed out after " + employeeCache.getLoadTimeout().toMillis()
+                    + "ms loading employee");
+        }
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(readOnly = true)
+    public Optional<Long> getEmployeeVersion(Long id) {
+
+        Optional<Employee> cachedEmployee = employeeCache.getById(id);
+
+        if(cachedEmployee.isPresent()){
+            return Optional.ofNullable(cachedEmployee.get().getVersion());
+        }
+
+        return employeeRepo.findVersionById(id);
     }
 
     @Override
-    public Employee updateEmployee(Employee updatedEmployee) {
+    @Transactional(readOnly = true)
+    public String getCollectionChangeToken() {
 
-        return employeeRepo.save(updatedEmployee);
+        //the feed's high-water mark, a short walk back from the newest seq that moves once a write becomes visible
+        return String.valueOf(changeRepo.findVisibleMaxSeq(changesVisibilityLagMicros).orElse(0L));
     }
 
     @Override
-    public void deleteEmployee(Long id) {
+    @Timed("employee.service")
+    @Transactional(readOnly = true)
+    public List<EmployeeChange> getChangesSince(long since, int limit) {
+
+        //seqs are handed out at insert but become visible at commit, so a later seq can show up before an earlier one.
+        //Only entries up to the newest one older than the visibility lag are served: a transaction ends within the
+        //write timeout, so by then every smaller seq has committed or rolled back and a cursor never skips one
+        long highWater = changeRepo.findVisibleMaxSeq(changesVisibilityLagMicros).orElse(0L);
+        List<EmployeeChange> changes = highWater <= since
+                ? List.of()
+                : changeRepo.findBySeqGreaterThanAndSeqLessThanEqualOrderBySeqAsc(since, highWater, PageRequest.of(0, limit));
+
+        //checked after the read, so a compaction running in between can not slip past unnoticed; a cursor at the
+        //high-water mark has nothing to miss, and the log start it would be compared with may still be uncommitted
+        Optional<Long> logStart = since < highWater ? changeRepo.findMinSeq() : Optional.empty();
+        if(logStart.isPresent() && since + 1 < logStart.get()){
+            throw new ChangesExpiredException("Changes after " + since + " are no longer retained, the log starts at "
+                    + logStart.get() + "; reload GET /api/employees and continue from its ETag");
+        }
+
+        return changes;
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(timeoutString = "${employee.changes.write-timeout:2}")
+    public Optional<Employee> updateEmployee(Long id, Employee updatedEmployee) {
+
+        Long version = updatedEmployee.getVersion();
+
+        //moving to an email another employee has clashes on the unique email index, as a create would
+        int updatedRows;
+        try {
+            updatedRows = version == null
+                    ? employeeRepo.updateById(id, updatedEmployee.getFirstName(),
+                            updatedEmployee.getLastName(), updatedEmployee.getEmail())
+                    : employeeRepo.updateByIdAndVersion(id, version, updatedEmployee.getFirstName(),
+                            updatedEmployee.getLastName(), updatedEmployee.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new ResourceNotFoundException("Employee already exist with email: " + updatedEmployee.getEmail(), e);
+            }
+            throw e;
+        }
+
+        //drops the id entry and, through it, the old email mapping; the next read repopulates both
+        evict(id);
+
+        if(updatedRows > 0){
+            changeRepo.recordSnapshot(id, EmployeeChange.Operation.UPDATE.name());
+        }
+
+        if(updatedRows == 0){
+            //only the failure path pays for telling a stale version apart from a missing row
+            if(version != null && employeeRepo.existsById(id)){
+                throw new EmployeeVersionConflictException("Employee " + id + " was modified since version " + version);
+            }
+            return Optional.empty();
+        }
+
+        //an unconditional update bumped whatever version the row had, read back the one it has now
+        Long newVersion = version != null ? Long.valueOf(version + 1) : employeeRepo.findVersionById(id).orElse(null);
+        Employee updated = updatedEmployee.toBuilder()
+                .id(id)
+                .version(newVersion)
+                .build();
+        afterCommit(() -> searchIndex.put(updated));
+
+        return Optional.of(updated);
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(timeoutString = "${employee.changes.write-timeout:2}")
+    public boolean deleteEmployee(Long id) {
+
+        int deletedRows = employeeRepo.deleteEmployeeById(id);
+        evict(id);
+
+        if(deletedRows > 0){
+            changeRepo.recordTombstone(id);
+            afterCommit(() -> searchIndex.remove(id));
+        }
+
+        return deletedRows > 0;
+    }
+
+    @Override
+    @Timed("employee.service")
+    @Transactional(timeoutString = "${employee.changes.write-timeout:2}")
+    public boolean deleteEmployee(Long id, Long version) {
+
+        if(version == null){
+            return deleteEmployee(id);
+        }
+
+        int deletedRows = employeeRepo.deleteEmployeeByIdAndVersion(id, version);
+        evict(id);
+
+        if(deletedRows == 0){
+            if(employeeRepo.existsById(id)){
+                throw new EmployeeVersionConflictException("Employee " + id + " was modified since version " + version);
+            }
+            return false;
+        }
+
+        changeRepo.recordTombstone(id);
+        afterCommit(() -> searchIndex.remove(id));
+        return true;
+    }
+
+    //evict now and again once the transaction commits, a concurrent read in between may have cached the old row
+    private void evict(Long id) {
+
+        employeeCache.evict(id);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    employeeCache.evict(id);
+                }
+            });
+        }
+    }
+
+    //a rolled back write never reaches the cache or the search index; outside a transaction the write is already committed
+    private static void afterCommit(Runnable action) {
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    //IDENTITY ids mean save() inserts straight away and updates are single statements, so a clash on the email
+    //index surfaces at the call
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ConstraintViolationException) {
+            String constraint = ((ConstraintViolationException) cause).getConstraintName();
+            return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+        }
+        return false;
+    }
 
-        employeeRepo.deleteById(id);
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 }
@@ -0,0 +1,272 @@
+package com.example.springboot.testing.tutorial.service.implentation;
+
+import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.exception.WriteBufferFullException;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeCreateStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+//opt-in group commit for single creates: requests queue up and one flusher thread writes them as one
+//multi-row transaction every max-delay or max-batch-size rows, whichever comes first
+@Component
+@ConditionalOnProperty(prefix = "employee.write-behind", name = "enabled", havingValue = "true")
+public class EmployeeWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeWriteBehindBuffer.class);
+
+    //how long stop() waits for the queue to drain before giving up on the flusher
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final EmployeeServiceImplemantation employeeService;
+
+    private final BlockingQueue<PendingCreate> queue;
+
+    private final int maxBatchSize;
+
+    private final Duration maxDelay;
+
+    //tickets of 202 responses, kept long enough for clients to poll the outcome
+    private final Cache<String, PendingCreate> tickets = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(100_000)
+            .build();
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    private final DistributionSummary batchSizes;
+
+    //meters are registered here rather than through MeterBinder: binding would make the registry depend on the
+    //service and its JPA stack, which with the metrics profile already depends on the registry
+    public EmployeeWriteBehindBuffer(EmployeeServiceImplemantation employeeService, MeterRegistry registry,
+                                     @Value("${employee.write-behind.capacity:10000}") int capacity,
+                                     @Value("${employee.write-behind.max-batch-size:500}") int maxBatchSize,
+                                     @Value("${employee.write-behind.max-delay:10ms}") Duration maxDelay) {
+        this.employeeService = employeeService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        //one flush has to stay one chunk, i.e. one transaction, so a failed batch can be retried row by row
+        this.maxBatchSize = Math.min(maxBatchSize, EmployeeServiceImplemantation.BATCH_CHUNK_SIZE);
+        this.maxDelay = maxDelay;
+
+        Gauge.builder("employee.write_behind.queue", queue, BlockingQueue::size)
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("employee.write_behind.batch.size")
+                .register(registry);
+    }
+
+    //queues the create, the future completes once its batch has committed
+    public PendingCreate submit(Employee employee) {
+
+        if (!running) {
+            throw new WriteBufferFullException("Write buffer is not accepting creates");
+        }
+
+        PendingCreate pending = new PendingCreate(UUID.randomUUID().toString(), employee);
+        if (!queue.offer(pending)) {
+            throw new WriteBufferFullException("Write buffer is full, retry later");
+        }
+        tickets.put(pending.getTicket(), pending);
+        return pending;
+    }
+
+    //blocks the caller until its batch is written, failures surface as they would from saveEmployee
+    public Employee await(PendingCreate pending) {
+
+        try {
+            return pending.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write buffer", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public Optional<EmployeeCreateStatus> getStatus(String ticket) {
+
+        return Optional.ofNullable(tickets.getIfPresent(ticket)).map(PendingCreate::toStatus);
+    }
+
+    @Override
+    public void start() {
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "employee-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    //stops intake, then lets the flusher write out whatever is still queued
+    @Override
+    public void stop() {
+
+        running = false;
+        try {
+            flusher.join(SHUTDOWN_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("Write buffer still held {} creates at shutdown", queue.size());
+            return;
+        }
+
+        //a submit that raced with shutdown must not leave its caller waiting forever
+        List<PendingCreate> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        leftovers.forEach(pending -> pending.future.completeExceptionally(
+                new WriteBufferFullException("Write buffer is shutting down")));
+    }
+
+    @Override
+    public boolean isRunning() {
+
+        return running;
+    }
+
+    //stop after the web server, so in-flight requests still get their batch flushed
+    @Override
+    public int getPhase() {
+
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void flushLoop() {
+
+        List<PendingCreate> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCreate first = queue.poll(maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                //give the batch until max-delay after its first create to fill up
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingCreate next = remaining > 0 && running ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write buffer flush failed", e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingCreate> batch) {
+
+        batchSizes.record(batch.size());
+
+        List<Employee> employees = new ArrayList<>(batch.size());
+        batch.forEach(pending -> employees.add(pending.employee));
+
+        List<EmployeeBatchResult> results;
+        try {
+            //duplicates inside the batch and against the table are rejected row by row here
+            results = employeeService.saveEmployees(employees);
+        } catch (DataIntegrityViolationException e) {
+            //a create outside the buffer kept taking one of the emails after the duplicate check. The batch was one
+            //chunk and rolled back as a whole, so every row can be settled again on its own
+            for (PendingCreate pending : batch) {
+                try {
+                    pending.future.complete(employeeService.saveEmployee(pending.employee));
+                } catch (RuntimeException rowFailure) {
+                    pending.future.completeExceptionally(rowFailure);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            EmployeeBatchResult result = results.get(i);
+            if (result.getStatus() == EmployeeBatchResult.Status.ACCEPTED) {
+                batch.get(i).future.complete(employees.get(i));
+            } else {
+                batch.get(i).future.completeExceptionally(new ResourceNotFoundException(result.getReason()));
+            }
+        }
+    }
+
+    //one queued create, the ticket identifies it to clients that were answered with 202
+    public static final class PendingCreate {
+
+        private final String ticket;
+
+        private final Employee employee;
+
+        private final CompletableFuture<Employee> future = new CompletableFuture<>();
+
+        PendingCreate(String ticket, Employee employee) {
+            this.ticket = ticket;
+            this.employee = employee;
+        }
+
+        public String getTicket() {
+            return ticket;
+        }
+
+        public CompletableFuture<Employee> getFuture() {
+            return future;
+        }
+
+        EmployeeCreateStatus toStatus() {
+
+            EmployeeCreateStatus.EmployeeCreateStatusBuilder status = EmployeeCreateStatus.builder()
+                    .ticket(ticket)
+                    .email(employee.getEmail());
+            if (!future.isDone()) {
+                return status.status(EmployeeCreateStatus.Status.PENDING).build();
+            }
+            try {
+                return status.status(EmployeeCreateStatus.Status.ACCEPTED).id(future.join().getId()).build();
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                return status.status(EmployeeCreateStatus.Status.REJECTED).reason(cause.getMessage()).build();
+            }
+        }
+    }
+}
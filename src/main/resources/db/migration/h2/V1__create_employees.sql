@@ -0,0 +1,29 @@
+-- same schema as db/migration/mysql, for the repository tests and the benchmarks
+
+create table employees (
+    id bigint generated by default as identity,
+    email varchar(255) not null,
+    email_normalized varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    version bigint,
+    primary key (id)
+);
+
+alter table employees add constraint uk_employees_email_normalized unique (email_normalized);
+create index idx_employees_last_first on employees (last_name, first_name);
+create index idx_employees_first_name on employees (first_name);
+
+create table employee_changes (
+    seq bigint generated by default as identity,
+    changed_at timestamp not null,
+    email varchar(255),
+    employee_id bigint not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    operation varchar(10) not null,
+    version bigint,
+    primary key (seq)
+);
+
+create index idx_employee_changes_employee_seq on employee_changes (employee_id, seq);
@@ -0,0 +1,35 @@
+-- the schema ddl-auto=update used to create from the entities; a database it created is baselined at this version
+-- and V2 fills in whatever it is missing.
+-- Later migrations on these tables run against live traffic: see OnlineSchemaChange for adding columns and indexes
+-- without blocking reads and writes.
+
+create table employees (
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    email_normalized varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    version bigint,
+    primary key (id)
+) engine=InnoDB;
+
+-- one employee per email regardless of case, and every email lookup
+alter table employees add constraint uk_employees_email_normalized unique (email_normalized);
+-- leading column last_name so the first/last name queries and a last-name-only filter both seek
+create index idx_employees_last_first on employees (last_name, first_name);
+-- first-name prefix filters and sort=firstName pages
+create index idx_employees_first_name on employees (first_name);
+
+create table employee_changes (
+    seq bigint not null auto_increment,
+    changed_at datetime(6) not null,
+    email varchar(255),
+    employee_id bigint not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    operation varchar(10) not null,
+    version bigint,
+    primary key (seq)
+) engine=InnoDB;
+
+create index idx_employee_changes_employee_seq on employee_changes (employee_id, seq);
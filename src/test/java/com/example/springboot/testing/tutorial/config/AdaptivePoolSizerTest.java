@@ -0,0 +1,73 @@
+package com.example.springboot.testing.tutorial.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptivePoolSizerTest {
+
+    private HikariDataSource dataSource;
+
+    private HikariPoolMXBean pool;
+
+    private Timer acquire;
+
+    private AdaptivePoolSizer sizer;
+
+    @BeforeEach
+    public void setup(){
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        acquire = Timer.builder("hikaricp.connections.acquire").tag("pool", "employees-pool").register(registry);
+        dataSource = Mockito.mock(HikariDataSource.class);
+        pool = Mockito.mock(HikariPoolMXBean.class);
+        BDDMockito.given(dataSource.getPoolName()).willReturn("employees-pool");
+        BDDMockito.given(dataSource.getHikariPoolMXBean()).willReturn(pool);
+        sizer = new AdaptivePoolSizer(dataSource, registry, 10, 24, Duration.ofMillis(5), Duration.ofNanos(500_000));
+    }
+
+    //JUnit test for growing a pool whose callers wait too long
+    @Test
+    @DisplayName("sizerGrowsOnSlowAcquire")
+    public void givenSlowAcquires_whenResize_thenPoolGrowsWithinBound(){
+
+        //given - precondition or setup
+        BDDMockito.given(dataSource.getMaximumPoolSize()).willReturn(20);
+        acquire.record(20, TimeUnit.MILLISECONDS);
+        acquire.record(10, TimeUnit.MILLISECONDS);
+
+        //when - action or behaviour to be tested
+        sizer.resize();
+
+        //then - verify the output
+        Mockito.verify(dataSource).setMaximumPoolSize(24);
+    }
+
+    //JUnit test for shrinking an idle pool
+    @Test
+    @DisplayName("sizerShrinksIdlePool")
+    public void givenFastAcquiresAndFewActive_whenResize_thenPoolShrinksByOne(){
+
+        //given - precondition or setup
+        BDDMockito.given(dataSource.getMaximumPoolSize()).willReturn(12);
+        BDDMockito.given(dataSource.getMinimumIdle()).willReturn(5);
+        BDDMockito.given(pool.getActiveConnections()).willReturn(2);
+        acquire.record(100, TimeUnit.MICROSECONDS);
+
+        //when - action or behaviour to be tested
+        sizer.resize();
+
+        //then - verify the output
+        Mockito.verify(dataSource).setMaximumPoolSize(11);
+        Mockito.verify(dataSource, Mockito.never()).setMinimumIdle(Mockito.anyInt());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.springboot.testing.tutorial.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//two embedded H2 databases stand in for the MySQL primary and replica, each knows its own name
+public class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+
+    private EmbeddedDatabase replica;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readOnly;
+
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void setup(){
+
+        primary = database("primary");
+        replica = database("replica");
+        DataSource routing = new ReplicaDataSourceConfiguration().routingDataSource(primary, replica);
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    //JUnit test for routing read-only transactions
+    @Test
+    @DisplayName("readOnlyTransactionUsesReplica")
+    public void givenReadOnlyTransaction_whenQuery_thenReplicaAnswers(){
+
+        //given - precondition or setup
+
+        //when - action or behaviour to be tested
+        String readOnlyNode = readOnly.execute(status -> node());
+        String readWriteNode = readWrite.execute(status -> node());
+
+        //then - verify the output
+        assertThat(readOnlyNode).isEqualTo("replica");
+        assertThat(readWriteNode).isEqualTo("primary");
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    //JUnit test for read-your-writes after a write request
+    @Test
+    @DisplayName("recentWriterReadsPrimary")
+    public void givenClientThatJustWrote_whenReadOnlyRequest_thenPrimaryAnswers() throws Exception {
+
+        //given - precondition or setup
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/employees"), writeResponse, (req, res) -> { });
+        Cookie cookie = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/employees/1");
+        read.setCookies(cookie);
+        AtomicReference<String> node = new AtomicReference<>();
+
+        //when - action or behaviour to be tested
+        filter.doFilter(read, new MockHttpServletResponse(), (req, res) -> node.set(readOnly.execute(status -> node())));
+
+        //then - verify the output
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+        assertThat(node.get()).isEqualTo("primary");
+        String afterRequest = readOnly.execute(status -> node());
+        assertThat(afterRequest).isEqualTo("replica");
+    }
+
+    //JUnit test for a recent writer's request handing work to an executor
+    @Test
+    @DisplayName("recentWriterAsyncWorkReadsPrimary")
+    public void givenClientThatJustWrote_whenWorkRunsOnExecutor_thenPrimaryAnswers() throws Exception {
+
+        //given - precondition or setup
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+        TaskDecorator decorator = new ReplicaDataSourceConfiguration().readYourWritesTaskDecorator();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/employees/stream");
+        read.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1"));
+        CompletableFuture<String> pinnedWork = new CompletableFuture<>();
+
+        try {
+            //when - action or behaviour to be tested, the request hands the read to the executor like a streamed body
+            filter.doFilter(read, new MockHttpServletResponse(), (req, res) -> executor.execute(decorator.decorate(
+                    () -> pinnedWork.complete(readOnly.execute(status -> node())))));
+            //the same worker thread, running work of a request that was not pinned
+            String unpinnedWork = executor.submit(() -> readOnly.execute(status -> node())).get(5, TimeUnit.SECONDS);
+
+            //then - verify the output
+            assertThat(pinnedWork.get(5, TimeUnit.SECONDS)).isEqualTo("primary");
+            assertThat(unpinnedWork).isEqualTo("replica");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static EmbeddedDatabase database(String name) {
+
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(name + "-" + System.nanoTime())
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table node (name varchar(16))");
+        jdbcTemplate.update("insert into node (name) values (?)", name);
+        return database;
+    }
+}
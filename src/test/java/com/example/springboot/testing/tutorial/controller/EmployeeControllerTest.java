@@ -1,9 +1,19 @@
 package com.example.springboot.testing.tutorial.controller;
 
+import com.example.springboot.testing.tutorial.config.WireFormatConfiguration;
+import com.example.springboot.testing.tutorial.exception.EmployeeVersionConflictException;
+import com.example.springboot.testing.tutorial.mapper.EmployeeMapperImpl;
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeImporter;
 import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -15,18 +25,34 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @WebMvcTest
+@Import({WireFormatConfiguration.class, EmployeeMapperImpl.class})
 public class EmployeeControllerTest {
 
     @Autowired
@@ -35,6 +61,9 @@ public class EmployeeControllerTest {
     @MockBean
     private EmployeeServiceImplemantation employeeServiceImplemantation;
 
+    @MockBean
+    private EmployeeImporter employeeImporter;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,25 +99,54 @@ public class EmployeeControllerTest {
                         CoreMatchers.is(employee.getEmail())));
     }
 
+    //JUnit test for bulk employee post rest endpoint
+    @Test
+    @DisplayName("controllerCreateEmployeesBatchTest")
+    public void givenEmployeeList_whenCreateEmployees_thenReturnRowResults() throws Exception {
+
+        //given - precondition or setup
+        Employee accepted = Employee.builder().id(1L).firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build();
+        Employee rejected = Employee.builder().firstName("Zinhle").lastName("Manaka").email("jay@gmail.com").build();
+
+        BDDMockito.given(employeeServiceImplemantation.saveEmployees(ArgumentMatchers.anyCollection()))
+                .willReturn(List.of(
+                        EmployeeBatchResult.accepted(0, accepted),
+                        EmployeeBatchResult.rejected(1, rejected, "Duplicate email in request: jay@gmail.com")));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(accepted, rejected))));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status", CoreMatchers.is("ACCEPTED")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status", CoreMatchers.is("REJECTED")));
+    }
+
     //JUnit test for get all employees REST API
     @Test
     @DisplayName("controllerGetAllEmployeeTest")
     public void givenListOfEmployees_whenGetAll_thenEmployeeList() throws Exception {
 
         //given - precondition or setup
-        List<Employee> employeeList = new ArrayList<>();
-        employeeList.add(Employee.builder()
+        List<EmployeeResponse> employeeList = new ArrayList<>();
+        employeeList.add(EmployeeResponse.builder()
                 .firstName("Sihle")
                 .lastName("Manaka")
                 .email("jay@gmail.com")
                 .build());
-        employeeList.add(Employee.builder()
+        employeeList.add(EmployeeResponse.builder()
                 .firstName("Zinhle")
                 .lastName("Manaka")
                 .email("zinhle@gmail.com")
                 .build());
 
-        BDDMockito.given(employeeServiceImplemantation.getAllEmployees()).willReturn(employeeList);
+        BDDMockito.given(employeeServiceImplemantation.getEmployeesAfter(null, EmployeeController.DEFAULT_PAGE_SIZE + 1))
+                .willReturn(employeeList);
 
         //when - action or behaviour to be tested
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees"));
@@ -96,8 +154,244 @@ public class EmployeeControllerTest {
         //then - verify the output
         response.andExpect(MockMvcResultMatchers.status().isOk()) //we checking if the status is 200/ok
                 .andDo(MockMvcResultHandlers.print()) //to print the response
-                .andExpect(MockMvcResultMatchers.jsonPath("$.size()",CoreMatchers.is(employeeList.size())));
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()",CoreMatchers.is(employeeList.size())))
                 //we verifying the size of the array
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(EmployeeController.NEXT_CURSOR_HEADER));
+    }
+
+    //JUnit test for search REST API with projection, sorting and cursor
+    @Test
+    @DisplayName("controllerSearchEmployeesTest")
+    public void givenSearchParams_whenSearch_thenReturnProjectedPageAndNextCursor() throws Exception {
+
+        //given - precondition or setup
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", 4L);
+        first.put("lastName", "Manaka");
+        first.put("email", "sihle@gmail.com");
+        Map<String, Object> second = new LinkedHashMap<>(first);
+        second.put("id", 8L);
+        second.put("email", "sipho@gmail.com");
+
+        BDDMockito.given(employeeServiceImplemantation.searchEmployees(ArgumentMatchers.argThat(criteria ->
+                        "Si*".equals(criteria.getFirstName())
+                                && "lastName".equals(criteria.getSortBy())
+                                && criteria.isDescending()
+                                && criteria.getFields().equals(List.of("email"))
+                                && Long.valueOf(3L).equals(criteria.getAfterId())
+                                && "Manaka".equals(criteria.getAfterValue())),
+                ArgumentMatchers.eq(2)))
+                .willReturn(List.of(first, second));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/search")
+                .param("firstName", "Si*")
+                .param("sort", "lastName,desc")
+                .param("fields", "email")
+                .param("after", EmployeeController.encodeCursor(3L, "Manaka"))
+                .param("limit", "1"));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].email", CoreMatchers.is("sihle@gmail.com")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].firstName").doesNotExist())
+                .andExpect(MockMvcResultMatchers.header().string(EmployeeController.NEXT_CURSOR_HEADER,
+                        EmployeeController.encodeCursor(4L, "Manaka")));
+    }
+
+    //JUnit test for name search REST API
+    @Test
+    @DisplayName("controllerSearchEmployeesByNameTest")
+    public void givenQuery_whenSearchByName_thenReturnRankedEmployees() throws Exception {
+
+        //given - precondition or setup
+        Employee employee = Employee.builder()
+                .id(4L)
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("sihle@gmail.com")
+                .build();
+        BDDMockito.given(employeeServiceImplemantation.searchEmployeesByName("sihle mana", 5)).willReturn(List.of(employee));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/search")
+                .param("q", "sihle mana")
+                .param("limit", "5"));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].lastName", CoreMatchers.is("Manaka")));
+        Mockito.verify(employeeServiceImplemantation, Mockito.never())
+                .searchEmployees(ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+    }
+
+    //JUnit test for keyset paging of get all employees REST API
+    @Test
+    @DisplayName("controllerGetEmployeesPageTest")
+    public void givenMoreEmployeesThanLimit_whenGetPage_thenReturnPageAndNextCursor() throws Exception {
+
+        //given - precondition or setup
+        List<EmployeeResponse> employeeList = new ArrayList<>();
+        employeeList.add(EmployeeResponse.builder().id(6L).firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build());
+        employeeList.add(EmployeeResponse.builder().id(7L).firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+        employeeList.add(EmployeeResponse.builder().id(9L).firstName("Jimbu").lastName("Manaka").email("jimbu@gmail.com").build());
+
+        //limit + 1 rows come back so the controller knows there is another page
+        BDDMockito.given(employeeServiceImplemantation.getEmployeesAfter(5L, 3)).willReturn(employeeList);
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+                .param("after", "5")
+                .param("limit", "2"));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.header().string(EmployeeController.NEXT_CURSOR_HEADER, "7"));
+    }
+
+    //JUnit test for streaming all employees REST API
+    @Test
+    @DisplayName("controllerStreamEmployeesTest")
+    public void givenEmployees_whenStream_thenWriteJsonArray() throws Exception {
+
+        //given - precondition or setup
+        List<Employee> employeeList = List.of(
+                Employee.builder().id(1L).firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build(),
+                Employee.builder().id(2L).firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            employeeList.forEach(action);
+            return null;
+        }).given(employeeServiceImplemantation).forEachEmployee(ArgumentMatchers.any());
+
+        //when - action or behaviour to be tested
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/stream"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then - verify the output
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].firstName", CoreMatchers.is("Zinhle")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].keys()", Matchers.containsInAnyOrder("id", "firstName", "lastName", "email", "version")));
+    }
+
+    //JUnit test for the NDJSON export REST API
+    @Test
+    @DisplayName("controllerExportNdjsonTest")
+    public void givenEmployees_whenExportNdjson_thenWriteOneObjectPerLine() throws Exception {
+
+        //given - precondition or setup
+        List<Employee> employeeList = List.of(
+                Employee.builder().id(1L).firstName("Sihle").lastName("Manaka").email("jay@gmail.com").version(0L).build(),
+                Employee.builder().id(2L).firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").version(3L).build());
+
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            employeeList.forEach(action);
+            return null;
+        }).given(employeeServiceImplemantation).exportEmployees(ArgumentMatchers.any());
+
+        //when - action or behaviour to be tested
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then - verify the output
+        String[] lines = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(EmployeeController.NDJSON))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], Employee.class).getVersion()).isEqualTo(3L);
+        //the same fields every other endpoint answers with
+        assertThat(objectMapper.readValue(lines[0], Map.class)).containsOnlyKeys("id", "firstName", "lastName", "email", "version");
+    }
+
+    //JUnit test for the gzip-compressed CSV export REST API
+    @Test
+    @DisplayName("controllerExportCsvGzipTest")
+    public void givenEmployees_whenExportCsvWithGzip_thenWriteCompressedQuotedCsv() throws Exception {
+
+        //given - precondition or setup
+        Employee employee = Employee.builder().id(1L).firstName("Sihle, Jr").lastName("Man\"aka").email("jay@gmail.com").version(0L).build();
+
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            action.accept(employee);
+            return null;
+        }).given(employeeServiceImplemantation).exportEmployees(ArgumentMatchers.any());
+
+        //when - action or behaviour to be tested
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/export")
+                        .param("format", "csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then - verify the output
+        byte[] compressed = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(EmployeeController.CSV_HEADER + "\r\n1,\"Sihle, Jr\",\"Man\"\"aka\",jay@gmail.com,0\r\n");
+        }
+    }
+
+    //JUnit negative test for an unknown export format
+    @Test
+    @DisplayName("controllerExportUnknownFormatTest")
+    public void givenUnknownFormat_whenExport_thenReturn400() throws Exception {
+
+        //given - precondition or setup
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/export").param("format", "xml"));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        Mockito.verify(employeeServiceImplemantation, Mockito.never()).exportEmployees(ArgumentMatchers.any());
+    }
+
+    //JUnit test for the bulk import REST API with a gzip-compressed NDJSON body
+    @Test
+    @DisplayName("controllerImportNdjsonGzipTest")
+    public void givenGzipNdjsonBody_whenImport_thenImporterReadsDecompressedNdjson() throws Exception {
+
+        //given - precondition or setup
+        String ndjson = "{\"firstName\":\"Sihle\",\"lastName\":\"Manaka\",\"email\":\"jay@gmail.com\"}\n";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(ndjson.getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> received = new ArrayList<>();
+        BDDMockito.given(employeeImporter.importEmployees(ArgumentMatchers.any(Reader.class), ArgumentMatchers.eq(EmployeeImporter.Format.NDJSON)))
+                .willAnswer(invocation -> {
+                    new BufferedReader(invocation.<Reader>getArgument(0)).lines().forEach(received::add);
+                    return EmployeeImportReport.builder().rows(1).accepted(1).errors(List.of()).build();
+                });
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/import")
+                .contentType(EmployeeController.NDJSON)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .content(compressed.toByteArray()));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accepted", CoreMatchers.is(1)));
+        assertThat(received).containsExactly(ndjson.trim());
     }
 
     //JUnit positive test for get employee by ID REST API
@@ -156,6 +450,68 @@ public class EmployeeControllerTest {
 
     }
 
+    //JUnit test for get employee by ID REST API in CBOR
+    @Test
+    @DisplayName("controllerGetEmployeeByIdCborTest")
+    public void givenAcceptCbor_whenGetEmployeeID_thenReturnCborEmployee() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        Employee employee = Employee.builder()
+                .id(employeeId)
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("jay@gmail.com")
+                .version(3L)
+                .build();
+
+        BDDMockito.given(employeeServiceImplemantation.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+
+        //when - action or behaviour to be tested
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", employeeId)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        //then - verify the output
+        Employee decoded = new ObjectMapper(new CBORFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), Employee.class);
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(employee);
+    }
+
+    //JUnit test for employee post rest endpoint with a Smile body
+    @Test
+    @DisplayName("controllerCreateEmployeeSmileTest")
+    public void givenSmileEmployee_whenCreateEmployee_thenReturnSavedEmployee() throws Exception {
+
+        //given - precondition or setup
+        //ids are assigned by the database, one in the body is ignored
+        Map<String, Object> employee = new LinkedHashMap<>();
+        employee.put("id", 42L);
+        employee.put("firstName", "Sihle");
+        employee.put("lastName", "Manaka");
+        employee.put("email", "jay@gmail.com");
+        employee.put("department", List.of("ignored"));
+        byte[] body = new ObjectMapper(new SmileFactory()).writeValueAsBytes(employee);
+
+        BDDMockito.given(employeeServiceImplemantation.saveEmployee(ArgumentMatchers.any(Employee.class)))
+                .willAnswer((invocation)->invocation.getArgument(0));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
+                .contentType("application/x-jackson-smile")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName", CoreMatchers.is("Sihle")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.email", CoreMatchers.is("jay@gmail.com")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(CoreMatchers.nullValue()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.department").doesNotExist());
+    }
+
     //JUnit test for update REST API - positive scenario
     @Test
     @DisplayName("controllerUpdateEmployeeTest")
@@ -176,11 +532,9 @@ public class EmployeeControllerTest {
                 .email("Zinhle@gmail.com")
                 .build();
 
-        //stub get by id
-        BDDMockito.given(employeeServiceImplemantation.getEmployeeById(employeeId)).willReturn(Optional.of(savedEmployee));
-
-        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.any(Employee.class)))
-                .willAnswer((invocation)->invocation.getArgument(0));
+        //stub the single statement update
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.any(Employee.class)))
+                .willAnswer((invocation)->Optional.of(invocation.getArgument(1)));
 
         //when - action or behaviour to be tested
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
@@ -219,11 +573,9 @@ public class EmployeeControllerTest {
                 .email("Zinhle@gmail.com")
                 .build();
 
-        //stub get by id
-        BDDMockito.given(employeeServiceImplemantation.getEmployeeById(employeeId)).willReturn(Optional.empty());
-
-        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.any(Employee.class)))
-                .willAnswer((invocation)->invocation.getArgument(0));
+        //stub the update of a missing row
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.any(Employee.class)))
+                .willReturn(Optional.empty());
 
         //when - action or behaviour to be tested
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
@@ -243,7 +595,7 @@ public class EmployeeControllerTest {
 
         //given - precondition or setup
         long employeeID = 1L;
-        BDDMockito.willDoNothing().given(employeeServiceImplemantation).deleteEmployee(employeeID);
+        BDDMockito.given(employeeServiceImplemantation.deleteEmployee(employeeID)).willReturn(true);
 
         //when - action or behaviour to be tested
         ResultActions resp = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}",employeeID));
@@ -253,4 +605,200 @@ public class EmployeeControllerTest {
                 .andDo(MockMvcResultHandlers.print());
 
     }
+
+    //JUnit test for delete employee REST API - negative scenario
+    @Test
+    @DisplayName("controllerDeleteEmployeeNegativeTest")
+    public void givenMissingEmployeeID_whenDelete_thenReturn404() throws Exception {
+
+        //given - precondition or setup
+        long employeeID = 1L;
+        BDDMockito.given(employeeServiceImplemantation.deleteEmployee(employeeID)).willReturn(false);
+
+        //when - action or behaviour to be tested
+        ResultActions resp = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}",employeeID));
+
+        //then - verify the output
+        resp.andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+
+    }
+
+    //JUnit test for update REST API - concurrent update scenario
+    @Test
+    @DisplayName("controllerUpdateEmployeeConflictTest")
+    public void givenStaleVersion_whenUpdating_thenReturn409() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        Employee staleEmployee = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("Zinhle@gmail.com")
+                .version(2L)
+                .build();
+
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.any(Employee.class)))
+                .willThrow(new EmployeeVersionConflictException("Employee 1 was modified since version 2"));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(staleEmployee)));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+
+    }
+
+    //JUnit test for conditional get employee by id REST API
+    @Test
+    @DisplayName("controllerGetEmployeeByIdNotModifiedTest")
+    public void givenCurrentETag_whenGetEmployeeById_thenReturn304WithoutLoading() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        BDDMockito.given(employeeServiceImplemantation.getEmployeeVersion(employeeId)).willReturn(Optional.of(4L));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", employeeId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"4\""));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"4\""));
+        Mockito.verify(employeeServiceImplemantation, Mockito.never()).getEmployeeById(employeeId);
+    }
+
+    //JUnit test for conditional update REST API with a stale If-Match
+    @Test
+    @DisplayName("controllerUpdateEmployeeIfMatchTest")
+    public void givenStaleIfMatch_whenUpdating_thenReturn412() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("Zinhle@gmail.com")
+                .build();
+
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId),
+                        ArgumentMatchers.argThat(employee -> Long.valueOf(2L).equals(employee.getVersion()))))
+                .willThrow(new EmployeeVersionConflictException("Employee 1 was modified since version 2"));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    //JUnit test for unconditional update REST API returning the new ETag
+    @Test
+    @DisplayName("controllerUpdateEmployeeETagTest")
+    public void givenNoIfMatch_whenUpdating_thenReturnETagOfNewVersion() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("Zinhle@gmail.com")
+                .build();
+
+        //no version is sent, the service reads back the one the update left behind
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId),
+                        ArgumentMatchers.argThat(employee -> employee.getVersion() == null)))
+                .willAnswer((invocation)->Optional.of(invocation.<Employee>getArgument(1).toBuilder().id(employeeId).version(5L).build()));
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version", Matchers.is(5)));
+    }
+
+    //JUnit test for conditional requests made with the ETag an unconditional update returned
+    @Test
+    @DisplayName("controllerUpdateEmployeeETagRoundTripTest")
+    public void givenETagFromUnconditionalUpdate_whenConditionalRequests_thenHonoured() throws Exception {
+
+        //given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("Zinhle@gmail.com")
+                .build();
+
+        BDDMockito.given(employeeServiceImplemantation.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.any(Employee.class)))
+                .willAnswer((invocation)->{
+                    Employee employee = invocation.getArgument(1);
+                    long version = employee.getVersion() == null ? 5L : employee.getVersion() + 1;
+                    return Optional.of(employee.toBuilder().id(employeeId).version(version).build());
+                });
+        BDDMockito.given(employeeServiceImplemantation.getEmployeeVersion(employeeId)).willReturn(Optional.of(5L));
+        String etag = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedEmployee)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when - action or behaviour to be tested
+        ResultActions notModified = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", employeeId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+        ResultActions conditionalUpdate = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",employeeId)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        //then - verify the output
+        assertThat(etag).isEqualTo("\"5\"");
+        notModified.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andDo(MockMvcResultHandlers.print());
+        conditionalUpdate.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"6\""));
+        Mockito.verify(employeeServiceImplemantation).updateEmployee(ArgumentMatchers.eq(employeeId),
+                ArgumentMatchers.argThat(employee -> Long.valueOf(5L).equals(employee.getVersion())));
+    }
+
+    //JUnit test for change feed REST API
+    @Test
+    @DisplayName("controllerGetChangesTest")
+    public void givenChangesSinceCursor_whenGetChanges_thenReturnPageAndTombstones() throws Exception {
+
+        //given - precondition or setup
+        List<EmployeeChange> changes = List.of(
+                EmployeeChange.builder().seq(11L).employeeId(1L).operation(EmployeeChange.Operation.UPDATE)
+                        .firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").version(2L).build(),
+                EmployeeChange.builder().seq(12L).employeeId(2L).operation(EmployeeChange.Operation.DELETE).build(),
+                EmployeeChange.builder().seq(14L).employeeId(3L).operation(EmployeeChange.Operation.CREATE).build());
+        BDDMockito.given(employeeServiceImplemantation.getChangesSince(10L, 3)).willReturn(changes);
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/changes")
+                .param("since", "10")
+                .param("limit", "2"));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].operation", CoreMatchers.is("DELETE")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].email").doesNotExist())
+                .andExpect(MockMvcResultMatchers.header().string(EmployeeController.NEXT_CURSOR_HEADER, "12"));
+    }
 }
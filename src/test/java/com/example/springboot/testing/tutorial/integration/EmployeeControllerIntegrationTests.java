@@ -1,5 +1,6 @@
 package com.example.springboot.testing.tutorial.integration;
 
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
 import com.example.springboot.testing.tutorial.model.Employee;
 import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,9 +35,14 @@ public class EmployeeControllerIntegrationTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EmployeeCache employeeCache;
+
     @BeforeEach
     public void setup(){
         employeeRepo.deleteAll();
+        //rows were removed behind the service's back
+        employeeCache.clear();
     }
 
     //JUnit test for employee post rest endpoint
@@ -67,6 +73,33 @@ public class EmployeeControllerIntegrationTests {
                         CoreMatchers.is(employee.getEmail())));
     }
 
+    //JUnit test for bulk employee post rest endpoint
+    @Test
+    @DisplayName("controllerCreateEmployeesBatchIntegrationTest")
+    public void givenEmployeeList_whenCreateEmployees_thenSaveAcceptedRows() throws Exception {
+
+        //given - precondition or setup
+        employeeRepo.save(Employee.builder().firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build());
+
+        List<Employee> employeeList = new ArrayList<>();
+        employeeList.add(Employee.builder().firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build());
+        employeeList.add(Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+        employeeList.add(Employee.builder().firstName("Jimbu").lastName("Manaka").email("jimbu@gmail.com").build());
+
+        //when - action or behaviour to be tested
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employeeList)));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status", CoreMatchers.is("REJECTED")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status", CoreMatchers.is("ACCEPTED")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].status", CoreMatchers.is("ACCEPTED")));
+        org.assertj.core.api.Assertions.assertThat(employeeRepo.count()).isEqualTo(3);
+    }
+
     //JUnit test for get all employees REST API
     @Test
     @DisplayName("controllerGetAllEmployeeIntegrationTest")
@@ -98,6 +131,37 @@ public class EmployeeControllerIntegrationTests {
         //we verifying the size of the array
     }
 
+    //JUnit test for keyset paging of get all employees REST API
+    @Test
+    @DisplayName("controllerGetEmployeesPageIntegrationTest")
+    public void givenMoreEmployeesThanLimit_whenGetPage_thenReturnPageAndNextCursor() throws Exception {
+
+        //given - precondition or setup
+        List<Employee> employeeList = new ArrayList<>();
+        employeeList.add(Employee.builder().firstName("Sihle").lastName("Manaka").email("jay@gmail.com").build());
+        employeeList.add(Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+        employeeList.add(Employee.builder().firstName("Jimbu").lastName("Manaka").email("jimbu@gmail.com").build());
+
+        employeeRepo.saveAll(employeeList);
+
+        //when - action or behaviour to be tested
+        ResultActions firstPage = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees").param("limit", "2"));
+        ResultActions lastPage = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+                .param("after", String.valueOf(employeeList.get(1).getId()))
+                .param("limit", "2"));
+
+        //then - verify the output
+        firstPage.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor",
+                        String.valueOf(employeeList.get(1).getId())));
+        lastPage.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].email", CoreMatchers.is("jimbu@gmail.com")))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor"));
+    }
+
     //JUnit positive test for get employee by ID REST API
     @Test
     @DisplayName("controllerGetEmployeeByIdIntegrationTest")
@@ -226,6 +290,41 @@ public class EmployeeControllerIntegrationTests {
 
     }
 
+    //JUnit test for update REST API - concurrent update scenario
+    @Test
+    @DisplayName("controllerUpdateEmployeeConflictIntegrationTest")
+    public void givenStaleVersion_whenUpdating_thenReturn409() throws Exception {
+
+        //given - precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("jay@gmail.com")
+                .build();
+        employeeRepo.save(savedEmployee);
+
+        //both writers read the same version
+        Employee firstWriter = savedEmployee.toBuilder().firstName("Zinhle").build();
+        Employee secondWriter = savedEmployee.toBuilder().firstName("Jimbu").build();
+
+        //when - action or behaviour to be tested
+        ResultActions first = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",savedEmployee.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(firstWriter)));
+        ResultActions second = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",savedEmployee.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(secondWriter)));
+
+        //then - verify the output
+        first.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version",
+                        CoreMatchers.is(savedEmployee.getVersion().intValue() + 1)));
+        second.andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+        org.assertj.core.api.Assertions.assertThat(employeeRepo.findById(savedEmployee.getId()).get().getFirstName())
+                .isEqualTo("Zinhle");
+    }
+
     //JUnit test for delete employee REST API
     @Test
     @DisplayName("controllerDeleteEmployeeIntegrationTest")
@@ -249,4 +348,76 @@ public class EmployeeControllerIntegrationTests {
                 .andDo(MockMvcResultHandlers.print());
 
     }
+
+    //JUnit test for update REST API - cached employee is not served stale
+    @Test
+    @DisplayName("controllerUpdateEmployeeCacheIntegrationTest")
+    public void givenCachedEmployee_whenUpdating_thenGetReturnsUpdatedEmployee() throws Exception {
+
+        //given - precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("jay@gmail.com")
+                .build();
+        employeeRepo.save(savedEmployee);
+
+        //warm the cache
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}",savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("Zinhle@gmail.com")
+                .build();
+
+        //when - action or behaviour to be tested
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",savedEmployee.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}",savedEmployee.getId()));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath(
+                        "$.firstName", Matchers.is(updatedEmployee.getFirstName())))
+                .andExpect(MockMvcResultMatchers.jsonPath(
+                        "$.email", Matchers.is(updatedEmployee.getEmail())));
+
+        //the old email is free again
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(savedEmployee.toBuilder().id(null).build())))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+    }
+
+    //JUnit test for delete REST API - cached employee is not served after delete
+    @Test
+    @DisplayName("controllerDeleteEmployeeCacheIntegrationTest")
+    public void givenCachedEmployee_whenDeleting_thenGetReturns404() throws Exception {
+
+        //given - precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("jay@gmail.com")
+                .build();
+        employeeRepo.save(savedEmployee);
+
+        //warm the cache
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}",savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        //when - action or behaviour to be tested
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}",savedEmployee.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}",savedEmployee.getId()));
+
+        //then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
 }
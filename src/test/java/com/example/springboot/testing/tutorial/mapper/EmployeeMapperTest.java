@@ -0,0 +1,54 @@
+package com.example.springboot.testing.tutorial.mapper;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeMapperTest {
+
+    private final EmployeeMapper employeeMapper = new EmployeeMapperImpl();
+
+    private final EmployeeRequest request = EmployeeRequest.builder()
+            .firstName("Sihle")
+            .lastName("Manaka")
+            .email("sihle@gmail.com")
+            .version(7L)
+            .build();
+
+    //JUnit test for the create mapping dropping a client supplied version
+    @Test
+    @DisplayName("mapperCreateIgnoresVersion")
+    public void givenRequestWithVersion_whenMappedForCreate_thenVersionNotCopied(){
+
+        //when - action or behaviour to be tested
+        Employee employee = employeeMapper.toNewEmployee(request);
+        List<Employee> employees = employeeMapper.toNewEmployees(List.of(request));
+
+        //then - verify the output
+        assertThat(employee.getFirstName()).isEqualTo("Sihle");
+        assertThat(employee.getEmail()).isEqualTo("sihle@gmail.com");
+        assertThat(employee.getId()).isNull();
+        assertThat(employee.getVersion()).isNull();
+        assertThat(employees).singleElement()
+                .satisfies(created -> assertThat(created.getVersion()).isNull());
+    }
+
+    //JUnit test for the update mapping keeping the version it is conditional on
+    @Test
+    @DisplayName("mapperUpdateKeepsVersion")
+    public void givenRequestWithVersion_whenMappedForUpdate_thenVersionCopied(){
+
+        //when - action or behaviour to be tested
+        Employee employee = employeeMapper.toEmployee(request);
+
+        //then - verify the output
+        assertThat(employee.getLastName()).isEqualTo("Manaka");
+        assertThat(employee.getId()).isNull();
+        assertThat(employee.getVersion()).isEqualTo(7L);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RepositoryPoolWaitAspectTest {
+
+    //JUnit test for pool wait attributed to the repository call that acquired the connection
+    @Test
+    @DisplayName("poolWaitRecordedPerRepositoryMethod")
+    public void givenRepositoryCallWaitingForConnection_whenCalled_thenWaitRecordedForThatMethod(){
+
+        //given - precondition or setup
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("registry", registry);
+        IMetricsTracker tracker = new PoolWaitMetricsTrackerFactory(beans.getBeanProvider(MeterRegistry.class))
+                .create("employees-pool", new PoolStats(0) {
+                    @Override
+                    protected void update() {
+                    }
+                });
+
+        EmployeeRepo employeeRepo = Mockito.mock(EmployeeRepo.class);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(4));
+            return Optional.empty();
+        });
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(employeeRepo);
+        proxyFactory.addAspect(new RepositoryPoolWaitAspect(registry));
+        EmployeeRepo proxiedRepo = proxyFactory.getProxy();
+
+        //when - action or behaviour to be tested
+        proxiedRepo.findById(1L);
+        proxiedRepo.count();
+
+        //then - verify the output
+        assertThat(registry.get("employee.repository.pool.wait").tag("method", "findById").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4);
+        assertThat(registry.get("employee.repository.pool.wait").tag("method", "count").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isZero();
+        assertThat(registry.get("hikaricp.connections.acquire").timer().count()).isEqualTo(1);
+    }
+}
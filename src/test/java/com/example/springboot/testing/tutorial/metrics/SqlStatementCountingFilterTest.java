@@ -0,0 +1,85 @@
+package com.example.springboot.testing.tutorial.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementCountingFilterTest {
+
+    private SimpleMeterRegistry registry;
+
+    private SqlStatementInspector inspector;
+
+    private SqlStatementCountingFilter filter;
+
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    public void setup(){
+
+        registry = new SimpleMeterRegistry();
+        inspector = new SqlStatementInspector(registry, 0);
+        filter = new SqlStatementCountingFilter(inspector, registry, 3);
+
+        request = new MockHttpServletRequest("GET", "/api/employees/7");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/employees/{id}");
+    }
+
+    //JUnit test for per request statement count
+    @Test
+    @DisplayName("filterCountsStatementsPerRequest")
+    public void givenRequestRunningStatements_whenFiltered_thenCountRecorded() throws Exception {
+
+        //when - action or behaviour to be tested
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            inspector.inspect("select e1_0.id from employees e1_0 where e1_0.id=?");
+            inspector.inspect("update employees set email=? where id=?");
+        });
+
+        //then - verify the output
+        assertThat(registry.get("employee.http.sql.statements").tag("uri", "/api/employees/{id}")
+                .summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.find("employee.http.sql.n_plus_one").counter()).isNull();
+        assertThat(registry.get("employee.sql.statements").counter().count()).isEqualTo(2);
+    }
+
+    //JUnit test for N+1 detection
+    @Test
+    @DisplayName("filterFlagsRepeatedStatements")
+    public void givenRequestRepeatingOneStatement_whenFiltered_thenNPlusOneFlagged() throws Exception {
+
+        //when - action or behaviour to be tested
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            inspector.inspect("select e1_0.id from employees e1_0");
+            for (int i = 0; i < 3; i++) {
+                inspector.inspect("select e1_0.email from employees e1_0 where e1_0.id=?");
+            }
+        });
+
+        //then - verify the output
+        assertThat(registry.get("employee.http.sql.n_plus_one").tag("uri", "/api/employees/{id}")
+                .counter().count()).isEqualTo(1);
+    }
+
+    //JUnit test for statements outside of a request
+    @Test
+    @DisplayName("inspectorIgnoresStatementsAfterRequest")
+    public void givenStatementAfterRequest_whenInspected_thenNotAttributed() throws Exception {
+
+        //given - precondition or setup
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> { });
+
+        //when - action or behaviour to be tested
+        inspector.inspect("select 1");
+
+        //then - verify the output
+        assertThat(registry.get("employee.http.sql.statements").summary().totalAmount()).isEqualTo(0);
+        assertThat(registry.get("employee.sql.statements").counter().count()).isEqualTo(1);
+    }
+}
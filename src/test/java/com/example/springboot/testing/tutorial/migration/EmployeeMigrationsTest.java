@@ -0,0 +1,164 @@
+package com.example.springboot.testing.tutorial.migration;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//an embedded H2 set up the way ddl-auto=update left the oldest production databases, with only the columns the first
+//Employee entity had; Hibernate checks the entities against the migrated schema at the end
+public class EmployeeMigrationsTest {
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Flyway flyway;
+
+    @BeforeEach
+    public void setup(){
+
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table employees (id bigint generated by default as identity, "
+                + "email varchar(255) not null, first_name varchar(255) not null, last_name varchar(255) not null, "
+                + "primary key (id))");
+        jdbcTemplate.update("insert into employees (email, first_name, last_name) values "
+                + "(' Sihle@Gmail.com', 'Sihle', 'Manaka'), ('zinhle@gmail.com', 'Zinhle', 'Manaka')");
+
+        flyway = Flyway.configure()
+                .dataSource(database)
+                .locations("classpath:db/migration/h2", "classpath:com/example/springboot/testing/tutorial/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        database.shutdown();
+    }
+
+    //JUnit test for migrating a database created by ddl-auto=update from the first Employee entity
+    @Test
+    @DisplayName("baselinedDatabaseIsUpgraded")
+    public void givenBaselineSchema_whenMigrate_thenColumnsIndexesAndChangeLogAddedAndEntitiesValidate(){
+
+        //given - precondition or setup
+
+        //when - action or behaviour to be tested
+        flyway.migrate();
+
+        //then - verify the output
+        assertThat(jdbcTemplate.queryForList("select email_normalized from employees order by id", String.class))
+                .containsExactly("sihle@gmail.com", "zinhle@gmail.com");
+        assertThat(jdbcTemplate.queryForList("select version from employees order by id", Long.class))
+                .containsExactly(0L, 0L);
+        assertThatThrownBy(() -> jdbcTemplate.update("insert into employees (email, email_normalized, first_name, "
+                + "last_name, version) values ('SIHLE@gmail.com', 'sihle@gmail.com', 'Jay', 'Manaka', 0)"))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(jdbcTemplate.queryForList("select index_name from information_schema.indexes "
+                + "where table_name in ('EMPLOYEES', 'EMPLOYEE_CHANGES')", String.class))
+                .contains("UK_EMPLOYEES_EMAIL_NORMALIZED", "IDX_EMPLOYEES_LAST_FIRST", "IDX_EMPLOYEES_FIRST_NAME",
+                        "IDX_EMPLOYEE_CHANGES_EMPLOYEE_SEQ");
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("2");
+        validateEntities();
+    }
+
+    //JUnit test for a database ddl-auto=update had added version and email_normalized to
+    @Test
+    @DisplayName("partlyUpdatedDatabaseIsBackfilledAndIndexed")
+    public void givenEmailNormalizedAddedByDdlAutoUpdate_whenMigrate_thenEmailNormalizedFilledAndUnique(){
+
+        //given - precondition or setup
+        jdbcTemplate.execute("alter table employees add column version bigint");
+        jdbcTemplate.execute("alter table employees add column email_normalized varchar(255) default '' not null");
+        jdbcTemplate.update("update employees set version = 3");
+
+        //when - action or behaviour to be tested
+        flyway.migrate();
+
+        //then - verify the output
+        assertThat(jdbcTemplate.queryForList("select email_normalized from employees order by id", String.class))
+                .containsExactly("sihle@gmail.com", "zinhle@gmail.com");
+        assertThat(jdbcTemplate.queryForList("select version from employees order by id", Long.class))
+                .containsExactly(3L, 3L);
+        validateEntities();
+    }
+
+    //JUnit test for a migration stopped half way and run again
+    @Test
+    @DisplayName("failedMigrationCanBeRepeated")
+    public void givenMigrationStoppedByDuplicates_whenDuplicatesMergedAndMigratedAgain_thenSchemaComplete(){
+
+        //given - precondition or setup
+        jdbcTemplate.update("insert into employees (email, first_name, last_name) "
+                + "values ('ZINHLE@gmail.com', 'Zinhle', 'Manaka')");
+        assertThatThrownBy(() -> flyway.migrate()).isInstanceOf(FlywayException.class);
+        jdbcTemplate.update("delete from employees where email = 'ZINHLE@gmail.com'");
+
+        //when - action or behaviour to be tested
+        flyway.repair();
+        flyway.migrate();
+
+        //then - verify the output
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("2");
+        validateEntities();
+    }
+
+    //JUnit test for emails that only differ in case
+    @Test
+    @DisplayName("duplicateEmailsStopTheMigration")
+    public void givenEmailsDifferingOnlyInCase_whenMigrate_thenMigrationFailsNamingThem(){
+
+        //given - precondition or setup
+        jdbcTemplate.update("insert into employees (email, first_name, last_name) "
+                + "values ('ZINHLE@gmail.com', 'Zinhle', 'Manaka')");
+
+        //when - action or behaviour to be tested
+
+        //then - verify the output
+        assertThatThrownBy(() -> flyway.migrate())
+                .isInstanceOf(FlywayException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("zinhle@gmail.com");
+    }
+
+    //what spring.jpa.hibernate.ddl-auto=validate does at startup
+    private void validateEntities(){
+
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, database)
+                .applySetting(AvailableSettings.DIALECT, H2Dialect.class.getName())
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "validate")
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .build();
+        try {
+            new MetadataSources(registry)
+                    .addAnnotatedClass(Employee.class)
+                    .addAnnotatedClass(EmployeeChange.class)
+                    .buildMetadata()
+                    .buildSessionFactory()
+                    .close();
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.springboot.testing.tutorial.ratelimit;
+
+import com.example.springboot.testing.tutorial.controller.EmployeeController;
+import com.example.springboot.testing.tutorial.exception.RateLimitExceededException;
+import com.example.springboot.testing.tutorial.exception.ServiceOverloadedException;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimitInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private SimpleMeterRegistry registry;
+
+    private Timer acquire;
+
+    private LoadShedder shedder;
+
+    private RateLimitInterceptor interceptor;
+
+    private HandlerMethod list;
+
+    private HandlerMethod getById;
+
+    @BeforeEach
+    public void setup() throws Exception {
+
+        registry = new SimpleMeterRegistry();
+        acquire = Timer.builder("hikaricp.connections.acquire").tag("pool", "employees-pool").register(registry);
+        HikariDataSource dataSource = Mockito.mock(HikariDataSource.class);
+        BDDMockito.given(dataSource.getPoolName()).willReturn("employees-pool");
+        shedder = new LoadShedder(dataSource, registry, Duration.ofMillis(50), Duration.ofMillis(500), 10, Duration.ofSeconds(2));
+
+        //10 tokens a second, 20 at most; the @RateLimitCost placeholders resolve to their defaults
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 20, 1000, clock::get);
+        interceptor = new RateLimitInterceptor(limiter, shedder,
+                value -> value.replaceAll("\\$\\{[^:}]+:([^}]*)}", "$1"), registry, "X-Client-Id");
+
+        EmployeeController controller = Mockito.mock(EmployeeController.class);
+        list = new HandlerMethod(controller, EmployeeController.class.getMethod("getAllEmployees", Long.class, int.class, String.class));
+        getById = new HandlerMethod(controller, EmployeeController.class.getMethod("getEmployeeById", Long.class, String.class));
+    }
+
+    //JUnit test for per client and endpoint token buckets
+    @Test
+    @DisplayName("rateLimitPerClientAndEndpoint")
+    public void givenClientThatUsedItsListBurst_whenListAgain_then429UntilRefilled() {
+
+        //given - precondition or setup, a list costs 10 of the 20 tokens
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), list)).isTrue();
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), list)).isTrue();
+
+        //when - action or behaviour to be tested
+        MockHttpServletResponse limited = new MockHttpServletResponse();
+
+        //then - verify the output
+        assertThatThrownBy(() -> interceptor.preHandle(request("integration-a"), limited, list))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(limited.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(registry.get("employee.http.rejected").tag("reason", "rate_limited").counter().count()).isEqualTo(1);
+        //other clients and the client's other endpoints have buckets of their own
+        assertThat(interceptor.preHandle(request("integration-b"), new MockHttpServletResponse(), list)).isTrue();
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), getById)).isTrue();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), list)).isTrue();
+    }
+
+    //JUnit test for shedding expensive endpoints while the pool wait SLO is breached
+    @Test
+    @DisplayName("loadSheddingOnSlowPool")
+    public void givenSlowConnectionAcquires_whenEvaluate_thenExpensiveEndpointsGet503UntilHealthy() {
+
+        //given - precondition or setup
+        acquire.record(200, TimeUnit.MILLISECONDS);
+
+        //when - action or behaviour to be tested
+        shedder.evaluate();
+
+        //then - verify the output
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertThatThrownBy(() -> interceptor.preHandle(request("integration-a"), shed, list))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), getById)).isTrue();
+
+        //a healthy interval stops shedding, and the shed call took no tokens
+        shedder.evaluate();
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), list)).isTrue();
+        assertThat(interceptor.preHandle(request("integration-a"), new MockHttpServletResponse(), list)).isTrue();
+    }
+
+    private static MockHttpServletRequest request(String client) {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+}
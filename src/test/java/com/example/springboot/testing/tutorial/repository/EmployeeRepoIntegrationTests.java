@@ -184,10 +184,10 @@ public class EmployeeRepoIntegrationTests {
         String lastName = "Manaka";
 
         //when - action or behaviour to be tested
-        Employee savedEmployee = employeeRepo.findByJPQL(firstName,lastName);
+        List<Employee> savedEmployee = employeeRepo.findByJPQL(firstName,lastName);
 
         //then - verify the output
-        assertThat(savedEmployee).isNotNull();
+        assertThat(savedEmployee).isNotEmpty();
     }
 
     //JUnit test for custom query using JPQL with named params
@@ -204,10 +204,10 @@ public class EmployeeRepoIntegrationTests {
         String lastName = "Manaka";
 
         //when - action or behaviour to be tested
-        Employee savedEmployee = employeeRepo.findByJPQLNamedParams(firstName,lastName);
+        List<Employee> savedEmployee = employeeRepo.findByJPQLNamedParams(firstName,lastName);
 
         //then - verify the output
-        assertThat(savedEmployee).isNotNull();
+        assertThat(savedEmployee).isNotEmpty();
     }
 
     //JUnit test for custom query using native sql using index  para
@@ -222,10 +222,10 @@ public class EmployeeRepoIntegrationTests {
 
 
         //when - action or behaviour to be tested
-        Employee SavedEmployee = employeeRepo.findByNativeSQL(employee.getFirstName(),employee.getLastName());
+        List<Employee> SavedEmployee = employeeRepo.findByNativeSQL(employee.getFirstName(),employee.getLastName());
 
         //then - verify the output
-        assertThat(SavedEmployee).isNotNull();
+        assertThat(SavedEmployee).isNotEmpty();
 
     }
 
@@ -241,10 +241,10 @@ public class EmployeeRepoIntegrationTests {
 
 
         //when - action or behaviour to be tested
-        Employee SavedEmployee = employeeRepo.findByNativeSQLNamed(employee.getFirstName(),employee.getLastName());
+        List<Employee> SavedEmployee = employeeRepo.findByNativeSQLNamed(employee.getFirstName(),employee.getLastName());
 
         //then - verify the output
-        assertThat(SavedEmployee).isNotNull();
+        assertThat(SavedEmployee).isNotEmpty();
 
     }
 
@@ -1,15 +1,27 @@
 package com.example.springboot.testing.tutorial.repository;
 
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeChangeCompactor;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @DataJpaTest //internally uses H2 database
@@ -18,6 +30,12 @@ public class EmployeeRepoTests {
     @Autowired
     private EmployeeRepo employeeRepo;
 
+    @Autowired
+    private EmployeeChangeRepo changeRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
     private Employee employee;
 
     @BeforeEach
@@ -125,6 +143,31 @@ public class EmployeeRepoTests {
         assertThat(employeeDB).isNotNull();
     }
 
+    //JUnit test for case-insensitive email lookup and the unique email index
+    @DisplayName("uniqueNormalizedEmailTest")
+    @Test
+    public void givenEmployeeEmail_whenSavingSameEmailInOtherCase_thenFoundAndRejected(){
+
+        //given - precondition or setup
+        setupEmployee1();
+
+        employeeRepo.save(employee);
+        Employee duplicate = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email(" JimbuManaka@Gmail.com ")
+                .build();
+
+        //when - action or behaviour to be tested
+        Optional<Employee> employeeDB = employeeRepo.findByEmail("JIMBUMANAKA@gmail.com");
+
+        //then - verify the output
+        assertThat(employeeDB).isPresent();
+        assertThat(employeeDB.get().getEmail()).isEqualTo("jimbumanaka@gmail.com");
+        assertThatThrownBy(() -> employeeRepo.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     //JUnit test for employee update
     @DisplayName("updateEmployeeTest")
     @Test
@@ -182,10 +225,10 @@ public class EmployeeRepoTests {
         String lastName = "Manaka";
 
         //when - action or behaviour to be tested
-        Employee savedEmployee = employeeRepo.findByJPQL(firstName,lastName);
+        List<Employee> savedEmployee = employeeRepo.findByJPQL(firstName,lastName);
 
         //then - verify the output
-        assertThat(savedEmployee).isNotNull();
+        assertThat(savedEmployee).isNotEmpty();
     }
 
     //JUnit test for custom query using JPQL with named params
@@ -202,10 +245,10 @@ public class EmployeeRepoTests {
         String lastName = "Manaka";
 
         //when - action or behaviour to be tested
-        Employee savedEmployee = employeeRepo.findByJPQLNamedParams(firstName,lastName);
+        List<Employee> savedEmployee = employeeRepo.findByJPQLNamedParams(firstName,lastName);
 
         //then - verify the output
-        assertThat(savedEmployee).isNotNull();
+        assertThat(savedEmployee).isNotEmpty();
     }
 
     //JUnit test for custom query using native sql using index  para
@@ -220,10 +263,10 @@ public class EmployeeRepoTests {
 
 
         //when - action or behaviour to be tested
-        Employee SavedEmployee = employeeRepo.findByNativeSQL(employee.getFirstName(),employee.getLastName());
+        List<Employee> SavedEmployee = employeeRepo.findByNativeSQL(employee.getFirstName(),employee.getLastName());
 
         //then - verify the output
-        assertThat(SavedEmployee).isNotNull();
+        assertThat(SavedEmployee).isNotEmpty();
 
     }
 
@@ -239,11 +282,190 @@ public class EmployeeRepoTests {
 
 
         //when - action or behaviour to be tested
-        Employee SavedEmployee = employeeRepo.findByNativeSQLNamed(employee.getFirstName(),employee.getLastName());
+        List<Employee> SavedEmployee = employeeRepo.findByNativeSQLNamed(employee.getFirstName(),employee.getLastName());
+
+        //then - verify the output
+        assertThat(SavedEmployee).isNotEmpty();
+
+    }
+
+    //JUnit test for bounded name lookup when several employees share a name
+    @Test
+    @DisplayName("findByNameSliceTest")
+    public void givenEmployeesSharingName_whenFindByName_thenReturnBoundedSlice(){
+
+        //given - precondition or setup
+        employeeRepo.saveAll(List.of(
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle1@gmail.com").build(),
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle2@gmail.com").build(),
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle3@gmail.com").build()));
+
+        //when - action or behaviour to be tested
+        Slice<Employee> firstPage = employeeRepo.findByName("Sihle", "Manaka", PageRequest.of(0, 2));
+        Slice<Employee> secondPage = employeeRepo.findByName("Sihle", "Manaka", firstPage.nextPageable());
+
+        //then - verify the output
+        assertThat(firstPage.getContent()).extracting(Employee::getEmail).containsExactly("sihle1@gmail.com", "sihle2@gmail.com");
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).extracting(Employee::getEmail).containsExactly("sihle3@gmail.com");
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    //JUnit test for JDBC batch insert and set based email check
+    @Test
+    @DisplayName("batchInsertTest")
+    public void givenEmployeeList_whenBatchInsert_thenIdsAssignedAndEmailsFound(){
+
+        //given - precondition or setup
+        Employee employee1 = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email("zinhlemanaka@gmail.com")
+                .build();
+        List<Employee> employeeList = List.of(employee, employee1);
+
+        //when - action or behaviour to be tested
+        employeeRepo.batchInsert(employeeList);
+
+        //then - verify the output
+        assertThat(employee.getId()).isNotNull();
+        assertThat(employee1.getId()).isGreaterThan(employee.getId());
+        assertThat(employeeRepo.findExistingEmails(List.of("zinhlemanaka@gmail.com", "nobody@gmail.com")))
+                .containsExactly("zinhlemanaka@gmail.com");
+    }
+
+    //JUnit test for single statement update and delete
+    @Test
+    @DisplayName("updateAndDeleteByIdTest")
+    public void givenEmployee_whenUpdateAndDeleteById_thenRowCountsReturned(){
+
+        //given - precondition or setup
+        employeeRepo.save(employee);
+        Long version = employee.getVersion();
+
+        //when - action or behaviour to be tested
+        int updated = employeeRepo.updateByIdAndVersion(employee.getId(), version, "Jimbu", "Manaka", "tatos@hotmail.com");
+        int stale = employeeRepo.updateByIdAndVersion(employee.getId(), version, "Jimbu", "Manaka", "stale@hotmail.com");
+        Employee updatedEmployee = employeeRepo.findById(employee.getId()).get();
+        int deleted = employeeRepo.deleteEmployeeById(employee.getId());
+        int missing = employeeRepo.deleteEmployeeById(employee.getId());
+
+        //then - verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(stale).isEqualTo(0);
+        assertThat(updatedEmployee.getEmail()).isEqualTo("tatos@hotmail.com");
+        assertThat(updatedEmployee.getVersion()).isEqualTo(version + 1);
+        assertThat(deleted).isEqualTo(1);
+        assertThat(missing).isEqualTo(0);
+    }
+
+    //JUnit test for prefix search, keyset paging and column projection
+    @Test
+    @DisplayName("searchTest")
+    public void givenEmployees_whenSearchByPrefixWithCursor_thenReturnProjectedPages(){
+
+        //given - precondition or setup
+        employeeRepo.saveAll(List.of(
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build(),
+                Employee.builder().firstName("Sipho").lastName("Dube").email("sipho@gmail.com").build(),
+                Employee.builder().firstName("Simon").lastName("Manaka").email("simon@gmail.com").build(),
+                Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build()));
+        EmployeeSearchCriteria firstPage = EmployeeSearchCriteria.builder()
+                .firstName("Si*")
+                .sortBy("lastName")
+                .field("firstName")
+                .build();
+
+        //when - action or behaviour to be tested
+        List<Map<String, Object>> page1 = employeeRepo.search(firstPage, 2);
+        Map<String, Object> last = page1.get(1);
+        List<Map<String, Object>> page2 = employeeRepo.search(firstPage.toBuilder()
+                .afterId((Long) last.get("id"))
+                .afterValue((String) last.get("lastName"))
+                .build(), 2);
 
         //then - verify the output
-        assertThat(SavedEmployee).isNotNull();
+        assertThat(page1).extracting(row -> row.get("firstName")).containsExactly("Sipho", "Sihle");
+        assertThat(page1.get(0).keySet()).containsExactly("id", "lastName", "firstName");
+        assertThat(page2).extracting(row -> row.get("firstName")).containsExactly("Simon");
+    }
+
+    //JUnit test for change feed entries and their compaction
+    @Test
+    @DisplayName("changeLogCompactionTest")
+    public void givenChangesForOneEmployee_whenCompacting_thenLatestEntryPerEmployeeKept(){
+
+        //given - precondition or setup
+        EmployeeChangeCompactor compactor = new EmployeeChangeCompactor(changeRepo, 10);
+        Employee other = Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build();
+        employeeRepo.batchInsert(List.of(employee, other));
+        employeeRepo.updateById(employee.getId(), "Sihle", "Manaka", "sihle@gmail.com");
+        changeRepo.recordSnapshot(employee.getId(), EmployeeChange.Operation.UPDATE.name());
+        employeeRepo.deleteEmployeeById(employee.getId());
+        changeRepo.recordTombstone(employee.getId());
 
+        //when - action or behaviour to be tested
+        List<EmployeeChange> before = changeRepo.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 10));
+        compactor.compact();
+        List<EmployeeChange> after = changeRepo.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 10));
+
+        //then - verify the output
+        assertThat(before).extracting(EmployeeChange::getOperation).containsExactly(
+                EmployeeChange.Operation.CREATE, EmployeeChange.Operation.CREATE,
+                EmployeeChange.Operation.UPDATE, EmployeeChange.Operation.DELETE);
+        assertThat(before.get(2).getEmail()).isEqualTo("sihle@gmail.com");
+        assertThat(before.get(2).getVersion()).isEqualTo(1L);
+        //the first entry is the log start and stays, the superseded update goes
+        assertThat(after).extracting(EmployeeChange::getSeq).containsExactly(
+                before.get(0).getSeq(), before.get(1).getSeq(), before.get(3).getSeq());
+    }
+
+    //JUnit test for the plain JDBC export walk
+    @DisplayName("forEachRowInIdOrderTest")
+    @Test
+    public void givenEmployees_whenForEachRowInIdOrder_thenUnmanagedRowsInIdOrder(){
+
+        //given - precondition or setup
+        Employee first = employeeRepo.save(Employee.builder().firstName("Sihle").lastName("Manaka").email("sihlemanaka@gmail.com").build());
+        Employee second = employeeRepo.save(Employee.builder().firstName("Jimbu").lastName("Manaka").email("jimbumanaka@gmail.com").build());
+        employeeRepo.flush();
+        List<Employee> rows = new ArrayList<>();
+
+        //when - action or behaviour to be tested
+        employeeRepo.forEachRowInIdOrder(rows::add);
+
+        //then - verify the output
+        assertThat(rows).extracting(Employee::getId).containsExactly(first.getId(), second.getId());
+        assertThat(rows.get(1).getEmail()).isEqualTo("jimbumanaka@gmail.com");
+        assertThat(rows.get(1).getVersion()).isZero();
+        assertThat(rows).noneMatch(entityManager::contains);
     }
 
+    //JUnit test for the keyset page projected into response values
+    @DisplayName("findPageAfterTest")
+    @Test
+    public void givenEmployees_whenFindPageAfter_thenResponsesWithoutManagedEntities(){
+
+        //given - precondition or setup
+        Employee first = employeeRepo.save(Employee.builder().firstName("Sihle").lastName("Manaka").email("sihlemanaka@gmail.com").build());
+        Employee second = employeeRepo.save(Employee.builder().firstName("Jimbu").lastName("Manaka").email("jimbumanaka@gmail.com").build());
+        Employee third = employeeRepo.save(Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhlemanaka@gmail.com").build());
+        employeeRepo.flush();
+        entityManager.clear();
+
+        //when - action or behaviour to be tested
+        List<EmployeeResponse> page = employeeRepo.findPageAfter(first.getId(), PageRequest.of(0, 1));
+
+        //then - verify the output
+        assertThat(page).containsExactly(EmployeeResponse.builder()
+                .id(second.getId())
+                .firstName("Jimbu")
+                .lastName("Manaka")
+                .email("jimbumanaka@gmail.com")
+                .version(0L)
+                .build());
+        assertThat(employeeRepo.findPageAfter(second.getId(), PageRequest.of(0, 10)))
+                .extracting(EmployeeResponse::getId).containsExactly(third.getId());
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
 }
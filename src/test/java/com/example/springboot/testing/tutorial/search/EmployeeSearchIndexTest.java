@@ -0,0 +1,107 @@
+package com.example.springboot.testing.tutorial.search;
+
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeSearchIndexTest {
+
+    private EmployeeSearchIndex index;
+
+    @BeforeEach
+    public void setup(){
+
+        index = new EmployeeSearchIndex(Mockito.mock(EmployeeRepo.class), true, 0.5);
+        index.build(sink -> {
+            sink.accept(employee(1L, "Sihle", "Manaka", "sihle.manaka@gmail.com"));
+            sink.accept(employee(2L, "Sipho", "Mokoena", "sipho@gmail.com"));
+            sink.accept(employee(3L, "Zinhle", "Manaka", "zinhle@gmail.com"));
+            sink.accept(employee(4L, "José", "Ndlovu", "jose.ndlovu@gmail.com"));
+        });
+    }
+
+    //JUnit test for prefix, typo and accent tolerant ranking
+    @Test
+    @DisplayName("searchIndexRanksFuzzyMatches")
+    public void givenIndexedEmployees_whenSearch_thenPrefixTypoAndAccentMatchesRanked(){
+
+        //when - action or behaviour to be tested
+        List<Employee> prefix = index.search("si", 10);
+        List<Employee> typo = index.search("manska", 10);
+        List<Employee> twoWords = index.search("zinhle man", 10);
+        List<Employee> accent = index.search("jose", 10);
+
+        //then - verify the output
+        assertThat(prefix).extracting(Employee::getId).containsExactly(1L, 2L);
+        assertThat(typo).extracting(Employee::getId).containsExactly(1L, 3L);
+        assertThat(twoWords).extracting(Employee::getId).first().isEqualTo(3L);
+        assertThat(accent).extracting(Employee::getFirstName).containsExactly("José");
+        assertThat(index.search("xyz", 10)).isEmpty();
+    }
+
+    //JUnit test for writes made while the index is being built
+    @Test
+    @DisplayName("searchIndexKeepsWritesMadeDuringBuild")
+    public void givenWritesDuringBuild_whenBuildLoadsOlderRows_thenWritesWin(){
+
+        //given - precondition or setup
+        EmployeeSearchIndex building = new EmployeeSearchIndex(Mockito.mock(EmployeeRepo.class), true, 0.5);
+
+        //when - action or behaviour to be tested, the cursor still returns rows as they were when it started
+        building.build(sink -> {
+            building.put(employee(1L, "Lwazi", "Manaka", "lwazi@gmail.com"));
+            building.remove(2L);
+            sink.accept(employee(1L, "Sihle", "Manaka", "sihle@gmail.com"));
+            sink.accept(employee(2L, "Sipho", "Mokoena", "sipho@gmail.com"));
+        });
+        building.put(employee(1L, "Lwazi", "Dube", "lwazi@gmail.com"));
+
+        //then - verify the output
+        assertThat(building.size()).isEqualTo(1);
+        assertThat(building.search("sihle", 10)).isEmpty();
+        assertThat(building.search("sipho", 10)).isEmpty();
+        assertThat(building.search("lwazi", 10)).extracting(Employee::getLastName).containsExactly("Dube");
+        assertThat(building.search("manaka", 10)).isEmpty();
+    }
+
+    //JUnit test for searches and writes after enough removes to compact the index
+    @Test
+    @DisplayName("searchIndexCompactsAfterRemoves")
+    public void givenMostEmployeesRemoved_whenIndexCompacts_thenSearchesAndWritesSeeOnlyLiveEmployees(){
+
+        //given - precondition or setup, odd ids are Sipho and even ids are Sihle
+        EmployeeSearchIndex sparse = new EmployeeSearchIndex(Mockito.mock(EmployeeRepo.class), true, 0.5);
+        sparse.build(sink -> {
+            for (long id = 1; id <= 2000; id++) {
+                sink.accept(employee(id, id % 2 == 1 ? "Sipho" : "Sihle", "Manaka", "employee" + id + "@gmail.com"));
+            }
+        });
+
+        //when - action or behaviour to be tested, the thousandth remove leaves half the documents dead and compacts
+        for (long id = 1; id <= 1500; id++) {
+            sparse.remove(id);
+        }
+        sparse.put(employee(1501L, "Lwazi", "Dube", "lwazi@gmail.com"));
+        sparse.put(employee(2001L, "Thandi", "Zulu", "thandi@gmail.com"));
+        sparse.remove(1503L);
+
+        //then - verify the output
+        assertThat(sparse.size()).isEqualTo(500);
+        assertThat(sparse.search("sipho", 3)).extracting(Employee::getId).containsExactly(1505L, 1507L, 1509L);
+        assertThat(sparse.search("sihle", 3)).extracting(Employee::getId).containsExactly(1502L, 1504L, 1506L);
+        assertThat(sparse.search("sipho", 1000)).hasSize(248).allMatch(employee -> employee.getId() > 1500);
+        assertThat(sparse.search("lwazi", 10)).extracting(Employee::getId).containsExactly(1501L);
+        assertThat(sparse.search("thandi", 10)).extracting(Employee::getId).containsExactly(2001L);
+    }
+
+    private static Employee employee(Long id, String firstName, String lastName, String email) {
+        return Employee.builder().id(id).firstName(firstName).lastName(lastName).email(email).build();
+    }
+}
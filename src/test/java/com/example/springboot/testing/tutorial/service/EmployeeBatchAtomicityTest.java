@@ -0,0 +1,213 @@
+package com.example.springboot.testing.tutorial.service;
+
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.mapper.EmployeeMapperImpl;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeImporter;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeWriteBehindBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+//bulk creates commit for real here, and another connection creates one of the chunk's emails between the chunk's
+//duplicate check and its insert, the race a unique index violation in the middle of a batch comes from
+@DataJpaTest
+@Import({EmployeeCache.class, EmployeeSearchIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeBatchAtomicityTest {
+
+    @Autowired
+    private EmployeeRepo employeeRepo;
+
+    @Autowired
+    private EmployeeChangeRepo changeRepo;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    //emails another connection creates, one per duplicate check
+    private final Deque<String> concurrentCreates = new ArrayDeque<>();
+
+    private EmployeeServiceImplemantation employeeService;
+
+    @BeforeEach
+    public void setup(){
+
+        EmployeeRepo racingRepo = mock(EmployeeRepo.class, delegatesTo(employeeRepo));
+        given(racingRepo.findExistingEmails(anyCollection())).willAnswer(invocation -> {
+            List<String> existing = employeeRepo.findExistingEmails(invocation.<Collection<String>>getArgument(0));
+            String email = concurrentCreates.poll();
+            if (email != null) {
+                CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                        "insert into employees (first_name, last_name, email, email_normalized, version) values (?, ?, ?, ?, 0)",
+                        "Concurrent", "Writer", email, Employee.normalizeEmail(email))).join();
+            }
+            return existing;
+        });
+        employeeService = new EmployeeServiceImplemantation(racingRepo, employeeCache, changeRepo, searchIndex, transactionManager,
+                2, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        changeRepo.deleteAllInBatch();
+        employeeRepo.deleteAllInBatch();
+        employeeCache.clear();
+    }
+
+    //JUnit test for a chunk that keeps losing the race for one of its emails
+    @Test
+    @DisplayName("saveEmployeesDuplicateMidChunk")
+    public void givenDuplicateCreatedMidChunk_whenSaveEmployees_thenNoRowOfTheChunkSurvives(){
+
+        //given - precondition or setup
+        concurrentCreates.add("thandi@gmail.com");
+        concurrentCreates.add("lwazi@gmail.com");
+
+        //when - action or the behaviour that we are going test
+        //then - verify the output
+        assertThatThrownBy(() -> employeeService.saveEmployees(List.of(
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build(),
+                Employee.builder().firstName("Thandi").lastName("Zulu").email("thandi@gmail.com").build(),
+                Employee.builder().firstName("Lwazi").lastName("Dube").email("lwazi@gmail.com").build())))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(employeeRepo.findAll())
+                .extracting(Employee::getFirstName, Employee::getEmail)
+                .containsExactlyInAnyOrder(
+                        tuple("Concurrent", "thandi@gmail.com"),
+                        tuple("Concurrent", "lwazi@gmail.com"));
+        assertThat(changeRepo.count()).isZero();
+    }
+
+    //JUnit test for a chunk retried after losing the race once
+    @Test
+    @DisplayName("saveEmployeesDuplicateMidChunkRetried")
+    public void givenDuplicateCreatedMidChunkOnce_whenSaveEmployees_thenChunkRetriedAndDuplicateRejected(){
+
+        //given - precondition or setup
+        concurrentCreates.add("thandi@gmail.com");
+
+        //when - action or the behaviour that we are going test
+        List<EmployeeBatchResult> results = employeeService.saveEmployees(List.of(
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build(),
+                Employee.builder().firstName("Thandi").lastName("Zulu").email("thandi@gmail.com").build(),
+                Employee.builder().firstName("Lwazi").lastName("Dube").email("lwazi@gmail.com").build()));
+
+        //then - verify the output
+        assertThat(results).extracting(EmployeeBatchResult::getStatus).containsExactly(
+                EmployeeBatchResult.Status.ACCEPTED, EmployeeBatchResult.Status.REJECTED, EmployeeBatchResult.Status.ACCEPTED);
+        assertThat(employeeRepo.findAll())
+                .extracting(Employee::getFirstName, Employee::getEmail)
+                .containsExactlyInAnyOrder(
+                        tuple("Sihle", "sihle@gmail.com"),
+                        tuple("Concurrent", "thandi@gmail.com"),
+                        tuple("Lwazi", "lwazi@gmail.com"));
+        assertThat(changeRepo.count()).isEqualTo(2);
+    }
+
+    //JUnit test for a write-behind flush whose batch loses the race for one of its emails
+    @Test
+    @DisplayName("writeBehindDuplicateMidFlush")
+    public void givenDuplicateCreatedMidFlush_whenFlushed_thenEachCreateSettledOnItsOwn(){
+
+        //given - precondition or setup
+        concurrentCreates.add("thandi@gmail.com");
+        concurrentCreates.add("lwazi@gmail.com");
+        EmployeeWriteBehindBuffer writeBehindBuffer = new EmployeeWriteBehindBuffer(employeeService, new SimpleMeterRegistry(), 10, 10, Duration.ofMillis(500));
+        writeBehindBuffer.start();
+
+        //when - action or the behaviour that we are going test
+        EmployeeWriteBehindBuffer.PendingCreate sihle = writeBehindBuffer.submit(
+                Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build());
+        EmployeeWriteBehindBuffer.PendingCreate thandi = writeBehindBuffer.submit(
+                Employee.builder().firstName("Thandi").lastName("Zulu").email("thandi@gmail.com").build());
+        EmployeeWriteBehindBuffer.PendingCreate lwazi = writeBehindBuffer.submit(
+                Employee.builder().firstName("Lwazi").lastName("Dube").email("lwazi@gmail.com").build());
+
+        //then - verify the output
+        try {
+            Employee created = writeBehindBuffer.await(sihle);
+            assertThatThrownBy(() -> writeBehindBuffer.await(thandi)).isInstanceOf(ResourceNotFoundException.class);
+            assertThatThrownBy(() -> writeBehindBuffer.await(lwazi)).isInstanceOf(ResourceNotFoundException.class);
+
+            assertThat(employeeRepo.findAll())
+                    .extracting(Employee::getId, Employee::getFirstName)
+                    .containsOnlyOnce(tuple(created.getId(), "Sihle"))
+                    .hasSize(3);
+            assertThat(changeRepo.count()).isEqualTo(1);
+        } finally {
+            writeBehindBuffer.stop();
+        }
+    }
+
+    //JUnit test for an import chunk whose batch loses the race for one of its emails
+    @Test
+    @DisplayName("importDuplicateMidChunk")
+    public void givenDuplicateCreatedMidImportChunk_whenImport_thenEachRowSettledOnItsOwn() throws Exception {
+
+        //given - precondition or setup
+        concurrentCreates.add("thandi@gmail.com");
+        concurrentCreates.add("lwazi@gmail.com");
+        EmployeeImporter importer = new EmployeeImporter(employeeService, new EmployeeMapperImpl(), new ObjectMapper(), 1, 100, Duration.ofMinutes(1));
+        String csv = "firstName,lastName,email\n" +
+                "Sihle,Manaka,sihle@gmail.com\n" +
+                "Thandi,Zulu,thandi@gmail.com\n" +
+                "Lwazi,Dube,lwazi@gmail.com\n";
+
+        //when - action or the behaviour that we are going test
+        EmployeeImportReport report = importer.importEmployees(new StringReader(csv), EmployeeImporter.Format.CSV);
+
+        //then - verify the output
+        assertThat(report.getAccepted()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(EmployeeImportReport.RowError::getLine).containsExactly(3L, 4L);
+        assertThat(employeeRepo.findAll())
+                .extracting(Employee::getFirstName)
+                .containsOnlyOnce("Sihle")
+                .hasSize(3);
+        assertThat(changeRepo.count()).isEqualTo(1);
+    }
+}
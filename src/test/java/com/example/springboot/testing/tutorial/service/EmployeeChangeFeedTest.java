@@ -0,0 +1,153 @@
+package com.example.springboot.testing.tutorial.service;
+
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeChange;
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//writes commit for real here, from two threads, and the feed is read the way a mirror polls it; with the default
+//5s visibility lag the test waits that long for the entries to show up
+@DataJpaTest
+@Import({EmployeeServiceImplemantation.class, EmployeeCache.class, EmployeeSearchIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeChangeFeedTest {
+
+    @Autowired
+    private IEmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepo employeeRepo;
+
+    @Autowired
+    private EmployeeChangeRepo changeRepo;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown(){
+        changeRepo.deleteAllInBatch();
+        employeeRepo.deleteAllInBatch();
+        employeeCache.clear();
+    }
+
+    //JUnit test for a later seq committing while an earlier one is still open
+    @Test
+    @DisplayName("changeFeedWaitsForEarlierSeqs")
+    public void givenInterleavedTransactions_whenMirrorPolls_thenNoSeqSkipped() throws Exception {
+
+        //given - precondition or setup
+        Employee sihle = employeeRepo.save(Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build());
+        Employee zinhle = employeeRepo.save(Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+
+        //the first transaction takes its seq, then stays open until the second one has committed
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch secondCommitted = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    employeeService.updateEmployee(sihle.getId(), Employee.builder()
+                            .firstName("Sihle").lastName("Mokoena").email("sihle@gmail.com").build());
+                    firstWritten.countDown();
+                    try {
+                        secondCommitted.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(firstWritten.await(10, TimeUnit.SECONDS)).isTrue();
+        Employee updatedZinhle = employeeService.updateEmployee(zinhle.getId(), Employee.builder()
+                .firstName("Zinhle").lastName("Mokoena").email("zinhle@gmail.com").build()).get();
+
+        //when - action or behaviour to be tested
+        List<EmployeeChange> whileFirstOpen = employeeService.getChangesSince(0L, 10);
+        String tokenWhileFirstOpen = employeeService.getCollectionChangeToken();
+        secondCommitted.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        List<EmployeeChange> afterLag = List.of();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (afterLag.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            afterLag = employeeService.getChangesSince(0L, 10);
+            //whatever a mirror sees at any moment has to start with the first transaction's entry
+            if (!afterLag.isEmpty()) {
+                assertThat(afterLag.get(0).getEmployeeId()).isEqualTo(sihle.getId());
+            }
+        }
+
+        //then - verify the output
+        assertThat(updatedZinhle.getVersion()).isEqualTo(zinhle.getVersion() + 1);
+        assertThat(whileFirstOpen).isEmpty();
+        assertThat(tokenWhileFirstOpen).isEqualTo("0");
+        assertThat(afterLag).extracting(EmployeeChange::getEmployeeId).containsExactly(sihle.getId(), zinhle.getId());
+        assertThat(afterLag).extracting(EmployeeChange::getLastName).containsOnly("Mokoena");
+        assertThat(employeeService.getCollectionChangeToken()).isEqualTo(String.valueOf(afterLag.get(1).getSeq()));
+    }
+
+    //JUnit test for an update to an email another employee has
+    @Test
+    @DisplayName("duplicateEmailUpdateRejected")
+    public void givenEmailTakenByAnotherEmployee_whenUpdating_thenRejectedAndNothingRecorded(){
+
+        //given - precondition or setup
+        Employee sihle = employeeRepo.save(Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build());
+        employeeRepo.save(Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build());
+
+        //when - action or behaviour to be tested
+        //then - verify the output
+        assertThatThrownBy(() -> employeeService.updateEmployee(sihle.getId(), Employee.builder()
+                .firstName("Sihle").lastName("Manaka").email("Zinhle@Gmail.com").build()))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(employeeRepo.findById(sihle.getId())).get().extracting(Employee::getEmail).isEqualTo("sihle@gmail.com");
+        assertThat(changeRepo.count()).isZero();
+    }
+
+    //JUnit test for a create whose transaction rolls back
+    @Test
+    @DisplayName("rolledBackCreateLeavesNoTrace")
+    public void givenCreateRolledBack_whenReadAndRetried_thenNothingCachedAndRetrySucceeds(){
+
+        //given - precondition or setup
+        Employee employee = Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build();
+
+        //when - action or behaviour to be tested
+        Employee rolledBack = new TransactionTemplate(transactionManager).execute(status -> {
+            Employee created = employeeService.saveEmployee(employee.toBuilder().build());
+            status.setRollbackOnly();
+            return created;
+        });
+
+        //then - verify the output
+        assertThat(employeeCache.getById(rolledBack.getId())).isEmpty();
+        assertThat(employeeCache.getIdByEmail("sihle@gmail.com")).isEmpty();
+        assertThat(employeeService.getEmployeeById(rolledBack.getId())).isEmpty();
+        assertThat(changeRepo.count()).isZero();
+        Employee retried = employeeService.saveEmployee(employee.toBuilder().build());
+        assertThat(employeeService.getEmployeeById(retried.getId())).isPresent();
+    }
+}
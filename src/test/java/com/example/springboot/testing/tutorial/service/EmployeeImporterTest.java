@@ -0,0 +1,118 @@
+package com.example.springboot.testing.tutorial.service;
+
+import com.example.springboot.testing.tutorial.mapper.EmployeeMapperImpl;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeImportReport;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeImporter;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeImporterTest {
+
+    @Mock
+    private EmployeeServiceImplemantation employeeServiceImplemantation;
+
+    private EmployeeImporter importer;
+
+    @BeforeEach
+    public void setup(){
+
+        importer = new EmployeeImporter(employeeServiceImplemantation, new EmployeeMapperImpl(), new ObjectMapper(), 2, 100, Duration.ofMinutes(1));
+
+        //accepts every row except the ones using taken@gmail.com
+        BDDMockito.given(employeeServiceImplemantation.saveEmployees(ArgumentMatchers.anyCollection())).willAnswer(invocation -> {
+            Collection<Employee> employees = invocation.getArgument(0);
+            List<EmployeeBatchResult> results = new ArrayList<>();
+            for (Employee employee : employees) {
+                results.add(employee.getEmail().equals("taken@gmail.com")
+                        ? EmployeeBatchResult.rejected(results.size(), employee, "Employee already exist with email: taken@gmail.com")
+                        : EmployeeBatchResult.accepted(results.size(), employee));
+            }
+            return results;
+        });
+    }
+
+    //JUnit test for a CSV import with invalid and duplicate rows
+    @Test
+    @DisplayName("importCsvTest")
+    public void givenCsvWithBadRows_whenImport_thenValidRowsSavedAndBadRowsReportedByLine() throws Exception {
+
+        //given - precondition or setup
+        String csv = "id,first_name,last_name,email,version\r\n" +
+                "1,Sihle,Manaka,sihle@gmail.com,0\r\n" +
+                "2,\"Zinhle\nRose\",\"Manaka, Jr\",zinhle@gmail.com,0\r\n" +
+                "3,Jimbu,,jimbu@gmail.com,0\r\n" +
+                "\r\n" +
+                "4,Jay,Manaka,not-an-email,0\r\n" +
+                "5,Lwazi,Manaka,taken@gmail.com,0\r\n";
+
+        //when - action or behaviour to be tested
+        EmployeeImportReport report = importer.importEmployees(new StringReader(csv), EmployeeImporter.Format.CSV);
+
+        //then - verify the output
+        ArgumentCaptor<Collection<Employee>> saved = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(employeeServiceImplemantation).saveEmployees(saved.capture());
+        Assertions.assertThat(saved.getValue()).extracting(Employee::getLastName)
+                .containsExactly("Manaka", "Manaka, Jr", "Manaka");
+        Assertions.assertThat(saved.getValue()).extracting(Employee::getId).containsOnlyNulls();
+        Assertions.assertThat(report.getRows()).isEqualTo(5);
+        Assertions.assertThat(report.getAccepted()).isEqualTo(2);
+        Assertions.assertThat(report.getRejected()).isEqualTo(3);
+        Assertions.assertThat(report.getErrors()).extracting(EmployeeImportReport.RowError::getLine)
+                .containsExactly(5L, 7L, 8L);
+        Assertions.assertThat(report.isErrorsTruncated()).isFalse();
+    }
+
+    //JUnit test for an NDJSON import spanning several chunks
+    @Test
+    @DisplayName("importNdjsonChunksTest")
+    public void givenLargeNdjson_whenImport_thenOneSaveBatchPerChunkInFileOrder() throws Exception {
+
+        //given - precondition or setup
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            ndjson.append(i == 700 ? "{\"firstName\":" : "{\"firstName\":\"F" + i + "\",\"lastName\":\"L\",\"email\":\"e" + i + "@gmail.com\"}")
+                    .append('\n');
+        }
+        //an exported line, with the fields the database assigns
+        ndjson.append("{\"id\":9,\"firstName\":\"Sihle\",\"lastName\":\"Manaka\",\"email\":\"sihle@gmail.com\",")
+                .append("\"emailNormalized\":\"taken@gmail.com\",\"version\":3}\n");
+
+        //when - action or behaviour to be tested
+        EmployeeImportReport report = importer.importEmployees(new StringReader(ndjson.toString()), EmployeeImporter.Format.NDJSON);
+
+        //then - verify the output
+        ArgumentCaptor<Collection<Employee>> saved = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(employeeServiceImplemantation, Mockito.times(3)).saveEmployees(saved.capture());
+        Assertions.assertThat(saved.getAllValues()).extracting(Collection::size).containsExactly(500, 499, 201);
+        Assertions.assertThat(saved.getAllValues().get(2).iterator().next().getEmail()).isEqualTo("e1000@gmail.com");
+        Assertions.assertThat(saved.getAllValues().get(2)).last()
+                .satisfies(exported -> {
+                    Assertions.assertThat(exported.getId()).isNull();
+                    Assertions.assertThat(exported.getVersion()).isNull();
+                    Assertions.assertThat(exported.getEmailNormalized()).isNull();
+                });
+        Assertions.assertThat(report.getAccepted()).isEqualTo(1200);
+        Assertions.assertThat(report.getErrors()).singleElement()
+                .satisfies(error -> Assertions.assertThat(error.getLine()).isEqualTo(701L));
+    }
+}
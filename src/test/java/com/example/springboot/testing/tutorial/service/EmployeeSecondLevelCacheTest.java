@@ -0,0 +1,166 @@
+package com.example.springboot.testing.tutorial.service;
+
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.config.SecondLevelCacheConfiguration;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
+import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//every call runs in its own transaction, as in production, so reads after a commit can come from the cache.
+//The reads go through the repository, past EmployeeCache, so only the second-level and query cache are in play.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({EmployeeServiceImplemantation.class, EmployeeCache.class, EmployeeSearchIndex.class, SecondLevelCacheConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeSecondLevelCacheTest {
+
+    @Autowired
+    private IEmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepo employeeRepo;
+
+    @Autowired
+    private EmployeeChangeRepo changeRepo;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup(){
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        employee = employeeService.saveEmployee(Employee.builder()
+                .firstName("Sihle")
+                .lastName("Manaka")
+                .email("sihlemanaka@gmail.com")
+                .build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        changeRepo.deleteAllInBatch();
+        employeeRepo.deleteAllInBatch();
+        employeeCache.clear();
+    }
+
+    //JUnit test for reads answered by the second-level cache
+    @Test
+    @DisplayName("repeatedReadsUseSecondLevelCache")
+    public void givenSavedEmployee_whenReadTwice_thenNoStatementsRun(){
+
+        //given - precondition or setup
+        employeeRepo.findById(employee.getId());
+        employeeRepo.findByEmail("SihleManaka@gmail.com");
+        //a native write that only names employee_changes leaves the employee regions alone
+        changeRepo.recordTombstone(employee.getId() + 1);
+        long statements = statistics.getPrepareStatementCount();
+
+        //when - action or behaviour to be tested
+        Optional<Employee> byId = employeeRepo.findById(employee.getId());
+        Optional<Employee> byEmail = employeeRepo.findByEmail("SihleManaka@gmail.com");
+
+        //then - verify the output
+        assertThat(byId).isPresent();
+        assertThat(byEmail).isPresent();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(statistics.getDomainDataRegionStatistics(Employee.CACHE_REGION).getHitCount()).isPositive();
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+    }
+
+    //JUnit test for updates never being answered from a stale cache entry
+    @Test
+    @DisplayName("updateIsNotServedStale")
+    public void givenCachedEmployee_whenUpdateEmployee_thenReadsSeeTheUpdate(){
+
+        //given - precondition or setup
+        employeeRepo.findById(employee.getId());
+        employeeRepo.findByEmail("sihlemanaka@gmail.com");
+        employeeRepo.findVersionById(employee.getId());
+        Employee update = Employee.builder()
+                .firstName("Jimbu")
+                .lastName("Manaka")
+                .email("jimbumanaka@gmail.com")
+                .version(employee.getVersion())
+                .build();
+
+        //when - action or behaviour to be tested
+        employeeService.updateEmployee(employee.getId(), update);
+
+        //then - verify the output
+        Employee updated = employeeRepo.findById(employee.getId()).get();
+        assertThat(updated.getFirstName()).isEqualTo("Jimbu");
+        assertThat(updated.getVersion()).isEqualTo(employee.getVersion() + 1);
+        assertThat(employeeRepo.findVersionById(employee.getId())).contains(employee.getVersion() + 1);
+        assertThat(employeeRepo.findByEmail("sihlemanaka@gmail.com")).isEmpty();
+        assertThat(employeeRepo.findByEmail("jimbumanaka@gmail.com")).isPresent();
+    }
+
+    //JUnit test for deletes never being answered from a stale cache entry
+    @Test
+    @DisplayName("deleteIsNotServedStale")
+    public void givenCachedEmployee_whenDeleteEmployee_thenReadsFindNothing(){
+
+        //given - precondition or setup
+        employeeRepo.findById(employee.getId());
+        employeeRepo.findByEmail("sihlemanaka@gmail.com");
+        List<Employee> byName = employeeRepo.findByName("Sihle", "Manaka", PageRequest.of(0, 10)).getContent();
+
+        //when - action or behaviour to be tested
+        employeeService.deleteEmployee(employee.getId(), employee.getVersion());
+
+        //then - verify the output
+        assertThat(byName).hasSize(1);
+        assertThat(employeeRepo.findById(employee.getId())).isEmpty();
+        assertThat(employeeRepo.findByEmail("sihlemanaka@gmail.com")).isEmpty();
+        assertThat(employeeRepo.findVersionById(employee.getId())).isEmpty();
+        assertThat(employeeRepo.findByName("Sihle", "Manaka", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    //JUnit test for bulk creates, which bypass Hibernate, invalidating cached lookups
+    @Test
+    @DisplayName("bulkCreateIsNotHiddenByQueryCache")
+    public void givenCachedEmptyLookup_whenSaveEmployees_thenLookupFindsNewEmployee(){
+
+        //given - precondition or setup
+        Employee newEmployee = Employee.builder()
+                .firstName("Jimbu")
+                .lastName("Manaka")
+                .email("jimbumanaka@gmail.com")
+                .build();
+        employeeRepo.findByEmail("jimbumanaka@gmail.com");
+
+        //when - action or behaviour to be tested
+        employeeService.saveEmployees(List.of(newEmployee));
+
+        //then - verify the output
+        assertThat(employeeRepo.findByEmail("jimbumanaka@gmail.com")).isPresent();
+    }
+}
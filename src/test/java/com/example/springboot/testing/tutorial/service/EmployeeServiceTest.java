@@ -1,23 +1,48 @@
 package com.example.springboot.testing.tutorial.service;
 
+import com.example.springboot.testing.tutorial.cache.EmployeeCache;
+import com.example.springboot.testing.tutorial.config.ReplicaRoutingDataSource;
+import com.example.springboot.testing.tutorial.exception.ChangesExpiredException;
+import com.example.springboot.testing.tutorial.exception.EmployeeVersionConflictException;
+import com.example.springboot.testing.tutorial.exception.InvalidSearchException;
 import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
 import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeResponse;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.model.EmployeeSearchCriteria;
+import com.example.springboot.testing.tutorial.repository.EmployeeChangeRepo;
 import com.example.springboot.testing.tutorial.repository.EmployeeRepo;
+import com.example.springboot.testing.tutorial.search.EmployeeSearchIndex;
 import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @ExtendWith(MockitoExtension.class)
 public class EmployeeServiceTest {
@@ -25,7 +50,18 @@ public class EmployeeServiceTest {
     @Mock
     private EmployeeRepo employeeRepo;
 
-    @InjectMocks
+    @Spy
+    private EmployeeCache employeeCache = new EmployeeCache(100, Duration.ofMinutes(10), Duration.ofSeconds(5));
+
+    @Mock
+    private EmployeeChangeRepo changeRepo;
+
+    @Mock
+    private EmployeeSearchIndex searchIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private EmployeeServiceImplemantation employeeServiceImplemantation;
 
     private Employee employee;
@@ -36,6 +72,8 @@ public class EmployeeServiceTest {
 
         //employeeRepo = Mockito.mock(EmployeeRepo.class);
         //employeeServiceImplemantation = new EmployeeServiceImplemantation(employeeRepo);
+        employeeServiceImplemantation = new EmployeeServiceImplemantation(employeeRepo, employeeCache, changeRepo,
+                searchIndex, transactionManager, 2, Duration.ofSeconds(5));
 
          employee = Employee.builder()
                 .id(1L)
@@ -54,8 +92,6 @@ public class EmployeeServiceTest {
         //given - precondition or setup
         setup();
 
-        //stubbing findBy method
-        BDDMockito.given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.empty());
         System.out.println("Repo: " + employeeRepo);
         System.out.println("employeeServiceImplemantation: " + employeeServiceImplemantation);
         //stubbing save method from service
@@ -66,6 +102,8 @@ public class EmployeeServiceTest {
         System.out.println("savedEmployee: " + savedEmployee.toString());
         //then - verify the output
         Assertions.assertThat(savedEmployee).isNotNull();
+        //the unique index does the duplicate check, no SELECT before the insert
+        Mockito.verify(employeeRepo,Mockito.never()).findByEmail(Mockito.anyString());
     }
 
     //JUnit test for save employee method which throws exception
@@ -76,8 +114,9 @@ public class EmployeeServiceTest {
         //given - precondition or setup
         setup();
 
-        //stubbing findBy method
-        BDDMockito.given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+        //stubbing save method to fail on the unique email index
+        BDDMockito.given(employeeRepo.save(employee)).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "UK_EMPLOYEES_EMAIL_NORMALIZED")));
 
         //when - action or behaviour to be tested
         org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,() ->{
@@ -85,7 +124,8 @@ public class EmployeeServiceTest {
         });
 
         //then - verify the output
-        Mockito.verify(employeeRepo,Mockito.never()).save(Mockito.any(Employee.class)); // after throwing exception we verfiying that our method does not save
+        Mockito.verify(employeeRepo,Mockito.never()).findByEmail(Mockito.anyString());
+        Assertions.assertThat(employeeCache.getIdByEmail(employee.getEmail())).isEmpty();
     }
 
     //JUnit test for get all employees
@@ -94,17 +134,24 @@ public class EmployeeServiceTest {
     public void givenEmployeesList_whenRetrieving_thenReturnsList(){
 
         //given - precondition or setup
-        Employee employee1 = Employee.builder()
+        EmployeeResponse employee0 = EmployeeResponse.builder()
+                .id(employee.getId())
+                .firstName(employee.getFirstName())
+                .lastName(employee.getLastName())
+                .email(employee.getEmail())
+                .build();
+        EmployeeResponse employee1 = EmployeeResponse.builder()
                 .id(2L)
                 .firstName("Zinhle")
                 .lastName("Manaka")
                 .email("Zinhlemanaka@gmail.com")
                 .build();
 
-        BDDMockito.given(employeeRepo.findAll()).willReturn(List.of(employee,employee1));
+        BDDMockito.given(employeeRepo.findPageAfter(0L, PageRequest.of(0, 10)))
+                .willReturn(List.of(employee0,employee1));
 
         //when - action or behaviour to be tested
-        List<Employee> employeeList = employeeServiceImplemantation.getAllEmployees();
+        List<EmployeeResponse> employeeList = employeeServiceImplemantation.getEmployeesAfter(null, 10);
 
         //then - verify the output
         Assertions.assertThat(employeeList).isNotNull();
@@ -117,17 +164,11 @@ public class EmployeeServiceTest {
     public void givenEmptyEmployeesList_whenRetrieving_thenReturnsEmptyList(){
 
         //given - precondition or setup
-        Employee employee1 = Employee.builder()
-                .id(2L)
-                .firstName("Zinhle")
-                .lastName("Manaka")
-                .email("Zinhlemanaka@gmail.com")
-                .build();
-
-        BDDMockito.given(employeeRepo.findAll()).willReturn(Collections.emptyList()); //returning an empty list
+        BDDMockito.given(employeeRepo.findPageAfter(2L, PageRequest.of(0, 10)))
+                .willReturn(Collections.emptyList()); //returning an empty list
 
         //when - action or behaviour to be tested
-        List<Employee> employeeList = employeeServiceImplemantation.getAllEmployees();
+        List<EmployeeResponse> employeeList = employeeServiceImplemantation.getEmployeesAfter(2L, 10);
 
         //then - verify the output
         Assertions.assertThat(employeeList).isEmpty();
@@ -156,17 +197,93 @@ public class EmployeeServiceTest {
 
         //given - precondition or setup
 
-        BDDMockito.given(employeeRepo.save(employee)).willReturn(employee);
+        BDDMockito.given(employeeRepo.updateById(1L, "Tatos", "Manaka", "tatos@stout.com")).willReturn(1);
+        BDDMockito.given(employeeRepo.findVersionById(1L)).willReturn(Optional.of(5L));
         //update employee
         employee.setFirstName("Tatos");
         employee.setEmail("tatos@stout.com");
 
         //when - action or behaviour to be tested
-        Employee updatedEmployee = employeeServiceImplemantation.updateEmployee(employee);
+        Employee updatedEmployee = employeeServiceImplemantation.updateEmployee(1L, employee).get();
 
         //then - verify the output
         Assertions.assertThat(updatedEmployee.getFirstName()).isEqualTo("Tatos");
         Assertions.assertThat(updatedEmployee.getEmail()).isEqualTo("tatos@stout.com");
+        //no version was sent, the one the update left behind is read back for the ETag
+        Assertions.assertThat(updatedEmployee.getVersion()).isEqualTo(5L);
+        //a single UPDATE statement, the entity is never loaded or merged
+        Mockito.verify(employeeRepo,Mockito.never()).findById(Mockito.anyLong());
+        Mockito.verify(employeeRepo,Mockito.never()).save(Mockito.any(Employee.class));
+    }
+
+    //JUnit test for Employee update of a missing employee
+    @Test
+    @DisplayName("serviceTestUpdateMissingEmployee")
+    public void givenMissingEmployee_whenUpdating_thenEmpty(){
+
+        //given - precondition or setup
+        BDDMockito.given(employeeRepo.updateById(1L, "Sihle", "Manaka", "sihlemanaka@gmail.com")).willReturn(0);
+
+        //when - action or behaviour to be tested
+        Optional<Employee> updatedEmployee = employeeServiceImplemantation.updateEmployee(1L, employee);
+
+        //then - verify the output
+        Assertions.assertThat(updatedEmployee).isEmpty();
+    }
+
+    //JUnit test for Employee update to an email another employee has
+    @Test
+    @DisplayName("serviceTestUpdateEmployeeExistEmailException")
+    public void givenEmailTakenByAnotherEmployee_whenUpdating_thenThrowException(){
+
+        //given - precondition or setup
+        employee.setEmail("zinhle@gmail.com");
+        BDDMockito.given(employeeRepo.updateById(1L, "Sihle", "Manaka", "zinhle@gmail.com"))
+                .willThrow(new DataIntegrityViolationException("duplicate",
+                        new ConstraintViolationException("duplicate", new SQLException(), "UK_EMPLOYEES_EMAIL_NORMALIZED")));
+
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,() ->{
+            employeeServiceImplemantation.updateEmployee(1L, employee);
+        });
+
+        //then - verify the output
+        Mockito.verify(changeRepo,Mockito.never()).recordSnapshot(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    //JUnit test for versioned Employee update
+    @Test
+    @DisplayName("serviceTestUpdateEmployeeWithVersion")
+    public void givenCurrentVersion_whenUpdating_thenVersionIncremented(){
+
+        //given - precondition or setup
+        employee.setVersion(3L);
+        BDDMockito.given(employeeRepo.updateByIdAndVersion(1L, 3L, "Sihle", "Manaka", "sihlemanaka@gmail.com"))
+                .willReturn(1);
+
+        //when - action or behaviour to be tested
+        Employee updatedEmployee = employeeServiceImplemantation.updateEmployee(1L, employee).get();
+
+        //then - verify the output
+        Assertions.assertThat(updatedEmployee.getVersion()).isEqualTo(4L);
+        Mockito.verify(employeeRepo,Mockito.never()).findVersionById(Mockito.anyLong());
+    }
+
+    //JUnit test for versioned Employee update with a stale version
+    @Test
+    @DisplayName("serviceTestUpdateEmployeeStaleVersionException")
+    public void givenStaleVersion_whenUpdating_thenThrowConflict(){
+
+        //given - precondition or setup
+        employee.setVersion(3L);
+        BDDMockito.given(employeeRepo.updateByIdAndVersion(1L, 3L, "Sihle", "Manaka", "sihlemanaka@gmail.com"))
+                .willReturn(0);
+        BDDMockito.given(employeeRepo.existsById(1L)).willReturn(true);
+
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(EmployeeVersionConflictException.class,() ->{
+            employeeServiceImplemantation.updateEmployee(1L, employee);
+        });
     }
 
     //JUnit test for delete employee
@@ -175,15 +292,409 @@ public class EmployeeServiceTest {
     public void givenEmployeeId_whenDelete_thenVoid(){
 
         //given - precondition or setup
-        BDDMockito.willDoNothing().given(employeeRepo).deleteById(1L); //for void stubbing we must use BDDMockito.willDoNothing()
+        BDDMockito.given(employeeRepo.deleteEmployeeById(1L)).willReturn(1);
+        //when - action or behaviour to be tested
+        boolean deleted = employeeServiceImplemantation.deleteEmployee(1L);
+
+        //then - verify the output
+        Assertions.assertThat(deleted).isTrue();
+        //we can verify that the single statement delete only gets called 1
+        Mockito.verify(employeeRepo,Mockito.times(1)).deleteEmployeeById(1L);
+        Mockito.verify(employeeRepo,Mockito.never()).findById(Mockito.anyLong());
+        //the delete leaves a tombstone in the change feed
+        Mockito.verify(changeRepo,Mockito.times(1)).recordTombstone(1L);
+
+    }
+
+
+    //JUnit test for versioned delete with a stale version
+    @Test
+    @DisplayName("serviceTestDeleteEmployeeStaleVersionException")
+    public void givenStaleVersion_whenDeleting_thenThrowConflictWithoutTombstone(){
+
+        //given - precondition or setup
+        BDDMockito.given(employeeRepo.deleteEmployeeByIdAndVersion(1L, 3L)).willReturn(0);
+        BDDMockito.given(employeeRepo.existsById(1L)).willReturn(true);
+
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(EmployeeVersionConflictException.class,() ->{
+            employeeServiceImplemantation.deleteEmployee(1L, 3L);
+        });
+
+        //then - verify the output
+        Mockito.verify(changeRepo,Mockito.never()).recordTombstone(Mockito.anyLong());
+    }
+
+    //JUnit test for a change feed cursor older than the retained log
+    @Test
+    @DisplayName("serviceTestChangesExpiredException")
+    public void givenCursorBeforeLogStart_whenGetChanges_thenThrowGone(){
+
+        //given - precondition or setup
+        BDDMockito.given(changeRepo.findVisibleMaxSeq(5_000_000L)).willReturn(Optional.of(9L));
+        BDDMockito.given(changeRepo.findBySeqGreaterThanAndSeqLessThanEqualOrderBySeqAsc(3L, 9L, PageRequest.of(0, 10)))
+                .willReturn(Collections.emptyList());
+        BDDMockito.given(changeRepo.findMinSeq()).willReturn(Optional.of(7L));
+
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(ChangesExpiredException.class,() ->{
+            employeeServiceImplemantation.getChangesSince(3L, 10);
+        });
+    }
+
+    //JUnit test for version lookup served from the cache
+    @Test
+    @DisplayName("serviceTestGetEmployeeVersionCached")
+    public void givenCachedEmployee_whenGetVersion_thenNoQuery(){
+
+        //given - precondition or setup
+        employee.setVersion(5L);
+        employeeCache.put(employee);
+
+        //when - action or behaviour to be tested
+        Optional<Long> version = employeeServiceImplemantation.getEmployeeVersion(1L);
+
+        //then - verify the output
+        Assertions.assertThat(version).contains(5L);
+        Mockito.verify(employeeRepo,Mockito.never()).findVersionById(Mockito.anyLong());
+    }
+
+    //JUnit test for get employee by ID served from the cache
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIDCached")
+    public void givenCachedEmployee_whenRetrievingTwice_thenRepoCalledOnce(){
+
+        //given - precondition or setup
+        BDDMockito.given(employeeRepo.findById(1L)).willReturn(Optional.of(employee));
+
+        //when - action or behaviour to be tested
+        employeeServiceImplemantation.getEmployeeById(1L);
+        Employee cachedEmployee = employeeServiceImplemantation.getEmployeeById(1L).get();
+
+        //then - verify the output
+        Assertions.assertThat(cachedEmployee.getEmail()).isEqualTo(employee.getEmail());
+        Mockito.verify(employeeRepo,Mockito.times(1)).findById(1L);
+    }
+
+    //JUnit test for cache invalidation on update
+    @Test
+    @DisplayName("serviceTestUpdateEmployeeEvictsCache")
+    public void givenCachedEmployee_whenUpdating_thenNextReadGoesToRepo(){
+
+        //given - precondition or setup
+        Employee updated = employee.toBuilder().email("tatos@stout.com").build();
+        BDDMockito.given(employeeRepo.findById(1L)).willReturn(Optional.of(employee), Optional.of(updated));
+        BDDMockito.given(employeeRepo.updateById(1L, "Sihle", "Manaka", "tatos@stout.com")).willReturn(1);
+        employeeServiceImplemantation.getEmployeeById(1L);
+
+        //when - action or behaviour to be tested
+        employeeServiceImplemantation.updateEmployee(1L, updated);
+        Employee reloaded = employeeServiceImplemantation.getEmployeeById(1L).get();
+
+        //then - verify the output
+        Assertions.assertThat(reloaded.getEmail()).isEqualTo("tatos@stout.com");
+        Mockito.verify(employeeRepo,Mockito.times(2)).findById(1L);
+        //the old email must no longer be reported as taken from the cache
+        Assertions.assertThat(employeeCache.getIdByEmail(employee.getEmail())).isEmpty();
+        Assertions.assertThat(employeeCache.getIdByEmail("tatos@stout.com")).contains(1L);
+    }
+
+    //JUnit test for cache invalidation on delete
+    @Test
+    @DisplayName("serviceTestDeleteEmployeeEvictsCache")
+    public void givenCachedEmployee_whenDeleting_thenNextReadGoesToRepo(){
+
+        //given - precondition or setup
+        BDDMockito.given(employeeRepo.findById(1L)).willReturn(Optional.of(employee), Optional.empty());
+        BDDMockito.given(employeeRepo.deleteEmployeeById(1L)).willReturn(1);
+        employeeServiceImplemantation.getEmployeeById(1L);
+
         //when - action or behaviour to be tested
         employeeServiceImplemantation.deleteEmployee(1L);
+        Optional<Employee> deleted = employeeServiceImplemantation.getEmployeeById(1L);
 
         //then - verify the output
-        //we can verify that deleteById only gets called 1
-        Mockito.verify(employeeRepo,Mockito.times(1)).deleteById(1L);
+        Assertions.assertThat(deleted).isEmpty();
+        Assertions.assertThat(employeeCache.getIdByEmail(employee.getEmail())).isEmpty();
+        Mockito.verify(employeeRepo,Mockito.times(2)).findById(1L);
+    }
+
+    //JUnit test for duplicate email answered from the cache
+    @Test
+    @DisplayName("serviceTestSaveEmployeeCachedEmailException")
+    public void givenCachedEmail_whenSaveEmployee_thenThrowWithoutQuery(){
+
+        //given - precondition or setup
+        employeeCache.put(employee);
+        Employee duplicate = Employee.builder()
+                .firstName("Zinhle")
+                .lastName("Manaka")
+                .email(employee.getEmail())
+                .build();
 
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,() ->{
+            employeeServiceImplemantation.saveEmployee(duplicate);
+        });
+
+        //then - verify the output
+        Mockito.verify(employeeRepo,Mockito.never()).findByEmail(Mockito.anyString());
+        Mockito.verify(employeeRepo,Mockito.never()).save(Mockito.any(Employee.class));
     }
 
 
+    //JUnit test for bulk create with duplicate and invalid rows
+    @Test
+    @DisplayName("serviceTestSaveEmployeesBatch")
+    public void givenEmployeeBatch_whenSaveEmployees_thenReportEachRow(){
+
+        //given - precondition or setup
+        Employee existing = Employee.builder().firstName("Sihle").lastName("Manaka").email("sihlemanaka@gmail.com").build();
+        Employee fresh = Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build();
+        Employee repeated = Employee.builder().firstName("Zinhle").lastName("Dube").email(" Zinhle@Gmail.com").build();
+        Employee invalid = Employee.builder().firstName("Jimbu").lastName("Manaka").build();
+
+        BDDMockito.given(employeeRepo.findExistingEmails(ArgumentMatchers.anyCollection()))
+                .willReturn(List.of("sihlemanaka@gmail.com"));
+        BDDMockito.willAnswer(invocation -> {
+            List<Employee> rows = invocation.getArgument(0);
+            rows.forEach(row -> row.setId(10L));
+            return null;
+        }).given(employeeRepo).batchInsert(ArgumentMatchers.anyList());
+
+        //when - action or behaviour to be tested
+        List<EmployeeBatchResult> results = employeeServiceImplemantation.saveEmployees(List.of(existing, fresh, repeated, invalid));
+
+        //then - verify the output
+        Assertions.assertThat(results).extracting(EmployeeBatchResult::getStatus).containsExactly(
+                EmployeeBatchResult.Status.REJECTED,
+                EmployeeBatchResult.Status.ACCEPTED,
+                EmployeeBatchResult.Status.REJECTED,
+                EmployeeBatchResult.Status.REJECTED);
+        Assertions.assertThat(results.get(1).getId()).isEqualTo(10L);
+        //one duplicate check and one insert batch for the whole chunk
+        Mockito.verify(employeeRepo,Mockito.times(1)).findExistingEmails(ArgumentMatchers.anyCollection());
+        Mockito.verify(employeeRepo,Mockito.times(1)).batchInsert(List.of(fresh));
+        Mockito.verify(employeeRepo,Mockito.never()).save(Mockito.any(Employee.class));
+    }
+
+    @Test
+    @DisplayName("serviceTestSearchRejectsUnknownField")
+    public void givenUnknownFieldOrSort_whenSearch_thenThrowWithoutQuery(){
+
+        //given - precondition or setup
+        EmployeeSearchCriteria unknownField = EmployeeSearchCriteria.builder().field("salary").build();
+        EmployeeSearchCriteria unknownSort = EmployeeSearchCriteria.builder().sortBy("version").build();
+
+        //when - action or behaviour to be tested
+        org.junit.jupiter.api.Assertions.assertThrows(InvalidSearchException.class,
+                () -> employeeServiceImplemantation.searchEmployees(unknownField, 10));
+        org.junit.jupiter.api.Assertions.assertThrows(InvalidSearchException.class,
+                () -> employeeServiceImplemantation.searchEmployees(unknownSort, 10));
+
+        //then - verify the output
+        Mockito.verify(employeeRepo,Mockito.never()).search(ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+    }
+
+    //JUnit test for concurrent reads of one employee sharing a single query
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIdCoalesced")
+    public void givenConcurrentReadsOfOneEmployee_whenGetEmployeeById_thenOneQueryServesAll() throws Exception {
+
+        //given - precondition or setup
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        employeeCache.bindTo(registry);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(employee);
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        try {
+            //when - action or behaviour to be tested
+            List<Future<Optional<Employee>>> results = new ArrayList<>();
+            results.add(callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L)));
+            loadStarted.await();
+            for (int i = 0; i < 7; i++) {
+                results.add(callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L)));
+            }
+            awaitCoalesced(registry, 7);
+            release.countDown();
+
+            //then - verify the output
+            for (Future<Optional<Employee>> result : results) {
+                Assertions.assertThat(result.get(5, TimeUnit.SECONDS)).contains(employee);
+            }
+            //every caller gets an object of its own
+            Assertions.assertThat(results.get(1).get().get()).isNotSameAs(results.get(2).get().get());
+            Mockito.verify(employeeRepo,Mockito.times(1)).findById(1L);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    //JUnit test for a failed shared query reaching every waiting caller
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIdCoalescedFailure")
+    public void givenSharedQueryFails_whenGetEmployeeById_thenEveryCallerGetsTheException() throws Exception {
+
+        //given - precondition or setup
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        employeeCache.bindTo(registry);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            loadStarted.countDown();
+            release.await();
+            throw new DataAccessResourceFailureException("connection reset");
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+
+        try {
+            //when - action or behaviour to be tested
+            List<Future<Optional<Employee>>> results = new ArrayList<>();
+            results.add(callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L)));
+            loadStarted.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L)));
+            }
+            awaitCoalesced(registry, 3);
+            release.countDown();
+
+            //then - verify the output
+            for (Future<Optional<Employee>> result : results) {
+                Assertions.assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(DataAccessResourceFailureException.class);
+            }
+            Mockito.verify(employeeRepo,Mockito.times(1)).findById(1L);
+            Assertions.assertThat(employeeCache.getById(1L)).isEmpty();
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    //JUnit test for a load racing an update not caching the row the update replaced
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIdRacingUpdate")
+    public void givenLoadStartedBeforeUpdate_whenUpdateEvicts_thenOldRowIsNotCached() throws Exception {
+
+        //given - precondition or setup
+        Employee updated = employee.toBuilder().email("tatos@stout.com").build();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(employee);
+        }).willReturn(Optional.of(updated));
+        BDDMockito.given(employeeRepo.updateById(1L, "Sihle", "Manaka", "tatos@stout.com")).willReturn(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Optional<Employee>> staleRead = callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L));
+            loadStarted.await();
+
+            //when - action or behaviour to be tested
+            employeeServiceImplemantation.updateEmployee(1L, updated);
+            release.countDown();
+
+            //then - verify the output
+            Assertions.assertThat(staleRead.get(5, TimeUnit.SECONDS)).contains(employee);
+            Assertions.assertThat(employeeCache.getById(1L)).isEmpty();
+            Assertions.assertThat(employeeServiceImplemantation.getEmployeeById(1L).get().getEmail()).isEqualTo("tatos@stout.com");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    //JUnit test for a caller waiting on a shared load when an update lands
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIdCoalescedAcrossUpdate")
+    public void givenCallerWaitingOnSharedLoad_whenUpdateLands_thenCallerLoadsAgain() throws Exception {
+
+        //given - precondition or setup
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        employeeCache.bindTo(registry);
+        Employee updated = employee.toBuilder().email("tatos@stout.com").build();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(employee);
+        }).willReturn(Optional.of(updated));
+        BDDMockito.given(employeeRepo.updateById(1L, "Sihle", "Manaka", "tatos@stout.com")).willReturn(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Optional<Employee>> leader = callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L));
+            loadStarted.await();
+            Future<Optional<Employee>> follower = callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L));
+            awaitCoalesced(registry, 1);
+
+            //when - action or behaviour to be tested
+            employeeServiceImplemantation.updateEmployee(1L, updated);
+            release.countDown();
+
+            //then - verify the output
+            Assertions.assertThat(leader.get(5, TimeUnit.SECONDS)).contains(employee);
+            Assertions.assertThat(follower.get(5, TimeUnit.SECONDS).get().getEmail()).isEqualTo("tatos@stout.com");
+            Mockito.verify(employeeRepo,Mockito.times(2)).findById(1L);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    //JUnit test for a client that just wrote reading while a shared load is running
+    @Test
+    @DisplayName("serviceTestGetEmployeeByIdPinnedSkipsSharedLoad")
+    public void givenSharedLoadRunning_whenPinnedCallerReads_thenLoadsOnItsOwn() throws Exception {
+
+        //given - precondition or setup
+        Employee updated = employee.toBuilder().email("tatos@stout.com").build();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeRepo.findById(1L)).willAnswer(invocation -> {
+            loadStarted.countDown();
+            release.await();
+            return Optional.of(employee);
+        }).willReturn(Optional.of(updated));
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Optional<Employee>> shared = callers.submit(() -> employeeServiceImplemantation.getEmployeeById(1L));
+            loadStarted.await();
+
+            //when - action or behaviour to be tested
+            Future<Optional<Employee>> pinned = callers.submit(() -> {
+                ReplicaRoutingDataSource.pinToPrimary();
+                try {
+                    return employeeServiceImplemantation.getEmployeeById(1L);
+                } finally {
+                    ReplicaRoutingDataSource.unpin();
+                }
+            });
+
+            //then - verify the output, the pinned read returns while the shared load is still held
+            Assertions.assertThat(pinned.get(5, TimeUnit.SECONDS).get().getEmail()).isEqualTo("tatos@stout.com");
+            release.countDown();
+            Assertions.assertThat(shared.get(5, TimeUnit.SECONDS)).contains(employee);
+            Mockito.verify(employeeRepo,Mockito.times(2)).findById(1L);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private static void awaitCoalesced(SimpleMeterRegistry registry, int callers) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("employee.single_flight.calls").tag("name", "employee.by_id").tag("result", "coalesced")
+                .functionCounter().count() < callers && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
 }
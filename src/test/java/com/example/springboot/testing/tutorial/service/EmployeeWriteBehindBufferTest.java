@@ -0,0 +1,102 @@
+package com.example.springboot.testing.tutorial.service;
+
+import com.example.springboot.testing.tutorial.exception.ResourceNotFoundException;
+import com.example.springboot.testing.tutorial.exception.WriteBufferFullException;
+import com.example.springboot.testing.tutorial.model.Employee;
+import com.example.springboot.testing.tutorial.model.EmployeeBatchResult;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeServiceImplemantation;
+import com.example.springboot.testing.tutorial.service.implentation.EmployeeWriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeWriteBehindBufferTest {
+
+    @Mock
+    private EmployeeServiceImplemantation employeeServiceImplemantation;
+
+    private EmployeeWriteBehindBuffer writeBehindBuffer;
+
+    @AfterEach
+    public void stopBuffer(){
+
+        writeBehindBuffer.stop();
+    }
+
+    //JUnit test for group commit of buffered creates
+    @Test
+    @DisplayName("writeBehindGroupCommitTest")
+    public void givenQueuedCreates_whenFlushed_thenOneBatchAndEachFutureSettled(){
+
+        //given - precondition or setup
+        writeBehindBuffer = new EmployeeWriteBehindBuffer(employeeServiceImplemantation, new SimpleMeterRegistry(), 10, 10, Duration.ofMillis(500));
+        Employee sihle = Employee.builder().firstName("Sihle").lastName("Manaka").email("sihle@gmail.com").build();
+        Employee zinhle = Employee.builder().firstName("Zinhle").lastName("Manaka").email("zinhle@gmail.com").build();
+        Employee repeated = Employee.builder().firstName("Zinhle").lastName("Dube").email("zinhle@gmail.com").build();
+
+        BDDMockito.given(employeeServiceImplemantation.saveEmployees(ArgumentMatchers.anyCollection())).willAnswer(invocation -> {
+            sihle.setId(1L);
+            zinhle.setId(2L);
+            return List.of(EmployeeBatchResult.accepted(0, sihle),
+                    EmployeeBatchResult.accepted(1, zinhle),
+                    EmployeeBatchResult.rejected(2, repeated, "Duplicate email in request: zinhle@gmail.com"));
+        });
+
+        //when - action or behaviour to be tested
+        writeBehindBuffer.start();
+        EmployeeWriteBehindBuffer.PendingCreate first = writeBehindBuffer.submit(sihle);
+        EmployeeWriteBehindBuffer.PendingCreate second = writeBehindBuffer.submit(zinhle);
+        EmployeeWriteBehindBuffer.PendingCreate third = writeBehindBuffer.submit(repeated);
+
+        //then - verify the output
+        Assertions.assertThat(writeBehindBuffer.await(first).getId()).isEqualTo(1L);
+        Assertions.assertThat(writeBehindBuffer.await(second).getId()).isEqualTo(2L);
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> writeBehindBuffer.await(third));
+        Mockito.verify(employeeServiceImplemantation, Mockito.times(1)).saveEmployees(ArgumentMatchers.anyCollection());
+        Mockito.verify(employeeServiceImplemantation, Mockito.never()).saveEmployee(ArgumentMatchers.any(Employee.class));
+    }
+
+    //JUnit test for backpressure once the buffer is full
+    @Test
+    @DisplayName("writeBehindBufferFullTest")
+    public void givenFullBuffer_whenSubmit_thenThrowAndDrainOnStop() throws Exception {
+
+        //given - precondition or setup
+        writeBehindBuffer = new EmployeeWriteBehindBuffer(employeeServiceImplemantation, new SimpleMeterRegistry(), 1, 10, Duration.ofMillis(1));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(employeeServiceImplemantation.saveEmployees(ArgumentMatchers.anyCollection())).willAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            List<Employee> rows = List.copyOf(invocation.getArgument(0));
+            return List.of(EmployeeBatchResult.accepted(0, rows.get(0)));
+        });
+        writeBehindBuffer.start();
+
+        //when - action or behaviour to be tested
+        EmployeeWriteBehindBuffer.PendingCreate inFlight = writeBehindBuffer.submit(Employee.builder().email("a@gmail.com").build());
+        flushing.await();
+        EmployeeWriteBehindBuffer.PendingCreate queued = writeBehindBuffer.submit(Employee.builder().email("b@gmail.com").build());
+
+        //then - verify the output
+        org.junit.jupiter.api.Assertions.assertThrows(WriteBufferFullException.class,
+                () -> writeBehindBuffer.submit(Employee.builder().email("c@gmail.com").build()));
+        release.countDown();
+        writeBehindBuffer.stop();
+        Assertions.assertThat(inFlight.getFuture()).isCompleted();
+        Assertions.assertThat(queued.getFuture()).isCompleted();
+    }
+}